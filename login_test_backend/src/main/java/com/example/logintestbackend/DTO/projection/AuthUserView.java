@@ -0,0 +1,17 @@
+package com.example.logintestbackend.DTO.projection;
+
+import com.example.logintestbackend.enums.Provider;
+
+/**
+ * Read-only view of the user columns needed to authenticate.
+ * Produced by a JPQL constructor expression, so it is never a managed entity:
+ * no persistence-context entry, no dirty-checking snapshot, no flush.
+ */
+public record AuthUserView(
+    Long id,
+    String email,
+    String passwordHash,
+    String name,
+    Provider provider,
+    boolean enabled
+) {}
@@ -0,0 +1,20 @@
+package com.example.logintestbackend.DTO.projection;
+
+/**
+ * Row returned by {@code UserRepository.upsertGoogleUser}.
+ */
+public interface GoogleUpsertResult {
+
+    Long getId();
+
+    /** Stored email (may differ from Google's if the account was matched by oauth id) */
+    String getEmail();
+
+    String getName();
+
+    /** True if the row was inserted or updated; false if it already matched */
+    boolean isChanged();
+
+    /** True if an existing account switched to Google or was re-enabled */
+    boolean isRelinked();
+}
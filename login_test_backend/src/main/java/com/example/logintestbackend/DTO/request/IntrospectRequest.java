@@ -0,0 +1,18 @@
+package com.example.logintestbackend.DTO.request;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class IntrospectRequest {
+    /** Hard upper bound on tokens per call; app.jwt.introspection.max-batch may only lower it */
+    public static final int MAX_TOKENS = 10_000;
+
+    /** Access tokens to check; the upper bound is app.jwt.introspection.max-batch */
+    @NotEmpty
+    @Size(max = MAX_TOKENS)
+    private List<String> tokens;
+}
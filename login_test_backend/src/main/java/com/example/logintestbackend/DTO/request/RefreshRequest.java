@@ -0,0 +1,10 @@
+package com.example.logintestbackend.DTO.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class RefreshRequest {
+    @NotBlank
+    private String refreshToken;
+}
@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class AuthResponse {
     private String accessToken;
+    private String refreshToken; // null unless refresh tokens are enabled
     private String tokenType;
     private Long id;
     private String email;
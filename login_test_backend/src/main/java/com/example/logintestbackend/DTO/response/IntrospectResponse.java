@@ -0,0 +1,10 @@
+package com.example.logintestbackend.DTO.response;
+
+import java.util.List;
+
+/**
+ * Batch introspection response; {@code results[i]} answers {@code tokens[i]} of the request.
+ */
+public record IntrospectResponse(
+    List<IntrospectionResult> results
+) {}
@@ -0,0 +1,16 @@
+package com.example.logintestbackend.DTO.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Compact per-token introspection result. Inactive tokens serialize as {@code {"active":false}}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IntrospectionResult(
+    boolean active,
+    String sub,
+    Long uid,
+    Long exp
+) {
+    public static final IntrospectionResult INACTIVE = new IntrospectionResult(false, null, null, null);
+}
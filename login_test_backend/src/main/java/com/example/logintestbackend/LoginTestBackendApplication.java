@@ -3,9 +3,11 @@ package com.example.logintestbackend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan 
+@EnableScheduling
 public class LoginTestBackendApplication {
 
     public static void main(String[] args) {
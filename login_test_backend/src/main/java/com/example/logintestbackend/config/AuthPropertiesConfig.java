@@ -0,0 +1,205 @@
+package com.example.logintestbackend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.logintestbackend.enums.AuditOverflowPolicy;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.auth")
+public class AuthPropertiesConfig {
+
+    /** Password hashing executor */
+    private Hashing hashing = new Hashing();
+
+    /** Login / registration rate limits */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * Reverse proxies (IPs or CIDR ranges) whose X-Forwarded-For is believed when resolving
+     * the client address for rate limits and the audit log; empty = use the peer address
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    /** In-memory Bloom filter of registered emails */
+    private KnownEmails knownEmails = new KnownEmails();
+
+    /** Local cache of auth-relevant user fields used by UserPrincipalService */
+    private PrincipalCache principalCache = new PrincipalCache();
+
+    /** Cross-instance user change events over Postgres LISTEN/NOTIFY */
+    private UserChangeBus userChangeBus = new UserChangeBus();
+
+    /** Login / registration / Google sign-in events written to login_events */
+    private AuditLog auditLog = new AuditLog();
+
+    @Getter
+    @Setter
+    public static class Hashing {
+        /** Worker threads dedicated to BCrypt (defaults to available cores) */
+        @Min(1)
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /** Hash/verify jobs allowed to wait; beyond this requests get 503 */
+        @Min(0)
+        private int queueCapacity = 256;
+
+        /** Retry-After value (seconds) sent with 503 when the queue is full */
+        @Min(1)
+        private int retryAfterSeconds = 1;
+
+        /** Per-hash latency the BCrypt cost is calibrated to at startup */
+        private Duration target = Duration.ofMillis(250);
+
+        /** Fixed BCrypt cost; skips calibration when set */
+        @Min(4) @Max(31)
+        private Integer strength;
+
+        /** Lowest cost calibration may pick (also the probe cost) */
+        @Min(4) @Max(31)
+        private int minStrength = 10;
+
+        /** Highest cost calibration may pick */
+        @Min(4) @Max(31)
+        private int maxStrength = 14;
+
+        /** Re-encode hashes below the current cost after a successful login */
+        private boolean rehashOnLogin = true;
+
+        /** Threads for the database steps after a hash (account insert, token insert, rehash write) */
+        @Min(1)
+        private int ioThreads = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+        /** Enforce limits on POST /api/auth and POST /api/auth/users */
+        private boolean enabled = true;
+
+        /** Attempts per client IP */
+        private Limit perIp = new Limit(20, Duration.ofMinutes(1));
+
+        /** Attempts per normalised email */
+        private Limit perEmail = new Limit(10, Duration.ofMinutes(1));
+
+        /** Attempts across the whole instance */
+        private Limit global = new Limit(500, Duration.ofSeconds(1));
+
+        /** Upper bound on tracked IP/email buckets per instance; beyond it the most idle sampled bucket is evicted */
+        @Min(1)
+        private int maxTrackedKeys = 200_000;
+
+        /** Also enforce per-IP / per-email limits across the cluster through Redis */
+        private boolean redisEnabled = false;
+    }
+
+    @Getter
+    @Setter
+    public static class KnownEmails {
+        /** Skip user lookups for emails that are definitely not registered */
+        private boolean enabled = true;
+
+        /**
+         * Minimum number of users the filter is sized for; the actual size is
+         * max(this, 1.5 x current user count). At 1% this costs ~1.2 MB per million users
+         * (50M users ~ 57 MiB, 7 hash probes).
+         */
+        @Min(1)
+        private long expectedUsers = 1_000_000;
+
+        /** Target false-positive rate; a rebuild is triggered early once the estimate doubles */
+        private double falsePositiveRate = 0.01;
+
+        /** Full rebuild interval (also drops emails of deleted users) */
+        private Duration rebuildInterval = Duration.ofHours(6);
+    }
+
+    @Getter
+    @Setter
+    public static class PrincipalCache {
+        private boolean enabled = true;
+
+        /** How long a loaded user is served without re-reading Postgres */
+        private Duration ttl = Duration.ofSeconds(30);
+
+        @Min(1)
+        private int maxEntries = 100_000;
+    }
+
+    @Getter
+    @Setter
+    public static class UserChangeBus {
+        private boolean enabled = true;
+
+        /** How long the listener blocks waiting for notifications before re-checking */
+        private Duration pollTimeout = Duration.ofSeconds(10);
+
+        /** How often the idle listener runs SELECT 1 to detect a dead (half-open) connection */
+        private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+        /** Socket read timeout of the listener connection; a heartbeat that exceeds it reconnects */
+        private Duration socketTimeout = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class AuditLog {
+        private boolean enabled = true;
+
+        /** Events buffered in memory between the auth flows and the writer */
+        @Min(1)
+        private int bufferCapacity = 65_536;
+
+        /** What to do with an event when the buffer is full */
+        private AuditOverflowPolicy overflowPolicy = AuditOverflowPolicy.DROP;
+
+        /** Longest an auth flow waits for buffer space under the BLOCK policy before dropping */
+        private Duration blockTimeout = Duration.ofMillis(100);
+
+        /** Events inserted per batch */
+        @Min(1) @Max(10_000)
+        private int batchSize = 1_000;
+
+        /** Longest an event waits in the buffer before a (partial) batch is written */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /** Retries of a failed batch before it is written row by row (rows that still fail are dropped) */
+        @Min(0)
+        private int batchRetries = 3;
+
+        /** How long shutdown waits for the buffer to be written */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+        /** Monthly partitions created ahead of the current month */
+        @Min(1)
+        private int partitionsAhead = 2;
+
+        /** Monthly partitions kept; older ones are dropped (0 keeps everything) */
+        @Min(0)
+        private int retentionMonths = 0;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        /** Burst size: attempts allowed at once from a full bucket */
+        @Min(1)
+        private int capacity;
+
+        /** Time to refill the bucket from empty */
+        private Duration period;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.logintestbackend.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Workloads that get their own primary connection pool when
+ * {@code app.datasource.bulkheads.enabled} is set (see {@link DataSourceRoutingConfig}).
+ *
+ * The workload is per thread: connections fetched inside {@link #call(Supplier)} come from
+ * that workload's pool. Without bulkheads the scope is recorded but has no effect.
+ */
+public enum ConnectionBulkhead {
+
+    /** Everything not listed below (refresh tokens, imports, ...) */
+    DEFAULT,
+
+    /** Per-request principal loads and login lookups */
+    AUTH_READ,
+
+    /** Registrations, Google upserts and password rehashes */
+    ACCOUNT_WRITE;
+
+    private static final ThreadLocal<ConnectionBulkhead> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Run {@code work} with this workload's pool. Transactions started (or first touching
+     * the database) inside it use that pool for their whole lifetime.
+     */
+    public <T> T call(Supplier<T> work) {
+        ConnectionBulkhead previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) CURRENT.remove(); else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @return the calling thread's workload
+     */
+    public static ConnectionBulkhead current() {
+        ConnectionBulkhead c = CURRENT.get();
+        return c == null ? DEFAULT : c;
+    }
+}
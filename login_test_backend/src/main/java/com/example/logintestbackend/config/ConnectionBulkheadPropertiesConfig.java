@@ -0,0 +1,40 @@
+package com.example.logintestbackend.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.datasource.bulkheads")
+public class ConnectionBulkheadPropertiesConfig {
+
+    /** Give request-auth reads and account writes their own primary pools (the rest keep spring.datasource.hikari) */
+    private boolean enabled = false;
+
+    /** Principal loads on every authenticated request, and login lookups */
+    private Pool authRead = new Pool(10, Duration.ofSeconds(1), Duration.ofSeconds(2));
+
+    /** Registrations, Google upserts and password rehashes */
+    private Pool accountWrite = new Pool(5, Duration.ofSeconds(5), Duration.ofSeconds(10));
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        @Min(1)
+        private int maximumPoolSize;
+
+        /** How long a caller waits for a free connection before failing */
+        private Duration connectionTimeout;
+
+        /** Postgres statement_timeout for connections of this pool */
+        private Duration statementTimeout;
+    }
+}
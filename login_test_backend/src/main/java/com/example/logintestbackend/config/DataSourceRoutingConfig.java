@@ -0,0 +1,284 @@
+package com.example.logintestbackend.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Connection routing, active when read replicas ({@code app.datasource.read-replicas}),
+ * connection bulkheads ({@code app.datasource.bulkheads}) or user sharding
+ * ({@code app.sharding}) are enabled.
+ *
+ * The application {@link DataSource} is a {@link LazyConnectionDataSourceProxy}: the physical
+ * connection is only fetched at the first statement, once the transaction's read-only flag
+ * and the thread's {@link ConnectionBulkhead} are known.
+ * - Read-only transactions ({@code @Transactional(readOnly = true)}, Spring Data finders) go
+ *   to {@link ReplicaRoutingDataSource} when replicas are enabled.
+ * - With sharding, connections opened inside {@link ShardRoutingDataSource#call} go to
+ *   that user shard (replicas are not supported in this mode); with bulkheads, to the shard's
+ *   own pool for the calling thread's workload.
+ * - Everything else goes to the primary: with bulkheads, to the pool of the calling
+ *   thread's workload ({@code auth-read}, {@code account-write}, or the default pool
+ *   configured under {@code spring.datasource}), so one workload exhausting its pool
+ *   cannot starve the others.
+ *
+ * Every pool publishes the usual Hikari metrics (active, pending, timeouts) tagged by pool name.
+ */
+@Configuration
+@ConditionalOnExpression("${app.datasource.read-replicas.enabled:false} or ${app.datasource.bulkheads.enabled:false}"
+        + " or ${app.sharding.enabled:false}")
+public class DataSourceRoutingConfig {
+
+    /**
+     * The default primary pool, built exactly as Spring Boot would build it without this class.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.bulkheads", name = "enabled", havingValue = "true")
+    public BulkheadRoutingDataSource bulkheadRoutingDataSource(HikariDataSource primaryDataSource,
+                                                               DataSourceProperties properties,
+                                                               ConnectionBulkheadPropertiesConfig cfg,
+                                                               MeterRegistry registry) {
+        return bulkheads("", primaryDataSource, properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), properties, primaryDataSource, cfg, registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.read-replicas", name = "enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             ObjectProvider<BulkheadRoutingDataSource> bulkheads,
+                                                             DataSourceProperties properties,
+                                                             ReadReplicaPropertiesConfig cfg,
+                                                             MeterRegistry registry) {
+        if (cfg.getReplicas().isEmpty()) {
+            throw new IllegalStateException("app.datasource.read-replicas.enabled is set but no replicas are configured");
+        }
+
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (int i = 0; i < cfg.getReplicas().size(); i++) {
+            ReadReplicaPropertiesConfig.Replica replica = cfg.getReplicas().get(i);
+            HikariDataSource pool = newPool("replica-" + (i + 1), replica.getUrl(),
+                    replica.getUsername() != null ? replica.getUsername() : properties.determineUsername(),
+                    replica.getPassword() != null ? replica.getPassword() : properties.determinePassword(),
+                    properties, primaryDataSource, cfg.getMaximumPoolSize(), cfg.getConnectionTimeout(), registry);
+            pool.setReadOnly(true);
+            pool.setInitializationFailTimeout(-1); // start even if a replica is down
+            pools.add(pool);
+        }
+
+        // Fallback reads follow the bulkheads like any other primary connection
+        DataSource primary = bulkheads.getIfAvailable();
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(
+                primary != null ? primary : primaryDataSource, pools, cfg, registry);
+        router.checkHealth();
+        return router;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource primaryDataSource,
+                                                         ObjectProvider<BulkheadRoutingDataSource> bulkheads,
+                                                         DataSourceProperties properties,
+                                                         ShardingPropertiesConfig cfg,
+                                                         ConnectionBulkheadPropertiesConfig bulkheadCfg,
+                                                         MeterRegistry registry) throws SQLException {
+        if (cfg.getShards().isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled is set but no shards are configured");
+        }
+
+        List<HikariDataSource> pools = new ArrayList<>();
+        List<DataSource> targets = new ArrayList<>();
+        for (int i = 0; i < cfg.getShards().size(); i++) {
+            ShardingPropertiesConfig.Shard shard = cfg.getShards().get(i);
+            String username = shard.getUsername() != null ? shard.getUsername() : properties.determineUsername();
+            String password = shard.getPassword() != null ? shard.getPassword() : properties.determinePassword();
+            HikariDataSource pool = newPool("shard-" + i, shard.getUrl(), username, password,
+                    properties, primaryDataSource, cfg.getMaximumPoolSize(), cfg.getConnectionTimeout(), registry);
+
+            // Same schema everywhere; ids stay unique across shards (and across resharding moves).
+            // Same lock and mixed mode as the main database (spring.flyway.postgresql.transactional-lock, spring.flyway.mixed)
+            Flyway.configure()
+                    .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                    .mixed(true)
+                    .dataSource(pool)
+                    .locations("classpath:db/migration")
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1")
+                    .load()
+                    .migrate();
+            reserveIdRange(pool, i);
+            pools.add(pool);
+
+            // User traffic lives on the shards, so the workloads are isolated there too
+            if (bulkheadCfg.isEnabled()) {
+                BulkheadRoutingDataSource router = bulkheads("shard-" + i + "-", pool, shard.getUrl(),
+                        username, password, properties, primaryDataSource, bulkheadCfg, registry);
+                router.initialize(); // not a bean of its own
+                targets.add(router);
+            } else {
+                targets.add(pool);
+            }
+        }
+
+        // Anything not routed to a shard (refresh tokens, shard map, ...) follows the bulkheads
+        DataSource main = bulkheads.getIfAvailable();
+        return new ShardRoutingDataSource(main != null ? main : primaryDataSource, pools, targets);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ObjectProvider<BulkheadRoutingDataSource> bulkheads,
+                                 ObjectProvider<ShardRoutingDataSource> shards,
+                                 ObjectProvider<ReplicaRoutingDataSource> replicas) {
+        DataSource primary = shards.getIfAvailable();
+        if (primary != null && replicas.getIfAvailable() != null) {
+            throw new IllegalStateException("Read replicas cannot be combined with sharding");
+        }
+        if (primary == null) primary = bulkheads.getIfAvailable();
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(
+                new WriteTrackingDataSource(primary != null ? primary : primaryDataSource));
+        replicas.ifAvailable(proxy::setReadOnlyDataSource);
+        return proxy;
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * The {@code auth-read} and {@code account-write} pools of one database, in front of its
+     * default pool. Pool names start with {@code prefix}.
+     */
+    private static BulkheadRoutingDataSource bulkheads(String prefix, DataSource defaultPool,
+                                                       String url, String username, String password,
+                                                       DataSourceProperties properties, HikariDataSource primary,
+                                                       ConnectionBulkheadPropertiesConfig cfg, MeterRegistry registry) {
+        ConnectionBulkheadPropertiesConfig.Pool authRead = cfg.getAuthRead();
+        ConnectionBulkheadPropertiesConfig.Pool accountWrite = cfg.getAccountWrite();
+
+        HikariDataSource authReadPool = newPool(prefix + "auth-read", url, username, password, properties, primary,
+                authRead.getMaximumPoolSize(), authRead.getConnectionTimeout(), registry);
+        authReadPool.addDataSourceProperty("options", statementTimeoutOption(authRead.getStatementTimeout()));
+
+        HikariDataSource accountWritePool = newPool(prefix + "account-write", url, username, password, properties,
+                primary, accountWrite.getMaximumPoolSize(), accountWrite.getConnectionTimeout(), registry);
+        accountWritePool.addDataSourceProperty("options", statementTimeoutOption(accountWrite.getStatementTimeout()));
+
+        return new BulkheadRoutingDataSource(defaultPool, Map.of(
+                ConnectionBulkhead.AUTH_READ, authReadPool,
+                ConnectionBulkhead.ACCOUNT_WRITE, accountWritePool));
+    }
+
+    private static HikariDataSource newPool(String name, String url, String username, String password,
+                                            DataSourceProperties properties, HikariDataSource primary,
+                                            int maximumPoolSize, Duration connectionTimeout, MeterRegistry registry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setDriverClassName(properties.determineDriverClassName());
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setMinimumIdle(1);
+        pool.setAutoCommit(primary.isAutoCommit());
+        pool.setIdleTimeout(primary.getIdleTimeout());
+        pool.setMaxLifetime(primary.getMaxLifetime());
+        pool.setConnectionTimeout(connectionTimeout.toMillis());
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return pool;
+    }
+
+    /**
+     * Start shard {@code k}'s id sequence at {@code k << 48}, so rows created on different
+     * shards never share an id and keep it when resharding moves them.
+     */
+    private static void reserveIdRange(DataSource shard, int k) throws SQLException {
+        if (k == 0) return;
+        long base = (long) k << 48;
+        try (Connection con = shard.getConnection();
+             PreparedStatement st = con.prepareStatement(
+                     "select setval('users_id_seq', ?) from users_id_seq where last_value < ?")) {
+            st.setLong(1, base);
+            st.setLong(2, base);
+            st.execute();
+            if (!con.getAutoCommit()) con.commit();
+        }
+    }
+
+    /**
+     * Session default sent in the startup packet. A {@code SET} in connectionInitSql would run
+     * in the pool's first (auto-commit off) transaction and be undone by its rollback.
+     */
+    private static String statementTimeoutOption(Duration timeout) {
+        return "-c statement_timeout=" + timeout.toMillis();
+    }
+
+    /**
+     * Primary connections from the pool of the calling thread's {@link ConnectionBulkhead}.
+     */
+    public static final class BulkheadRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+        private final Map<ConnectionBulkhead, HikariDataSource> pools;
+
+        BulkheadRoutingDataSource(DataSource defaultPool, Map<ConnectionBulkhead, HikariDataSource> pools) {
+            this.pools = pools;
+            setTargetDataSources(new HashMap<>(pools));
+            setDefaultTargetDataSource(defaultPool);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return ConnectionBulkhead.current();
+        }
+
+        @Override
+        public void destroy() {
+            pools.values().forEach(HikariDataSource::close);
+        }
+    }
+
+    /**
+     * Marks the calling thread whenever it takes a primary connection for a non-read-only
+     * transaction, so its follow-up reads avoid lagging replicas.
+     */
+    private static final class WriteTrackingDataSource extends DelegatingDataSource {
+        WriteTrackingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            ReplicaRoutingDataSource.markWrite();
+            return super.getConnection();
+        }
+    }
+}
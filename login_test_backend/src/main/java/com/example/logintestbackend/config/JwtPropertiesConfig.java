@@ -1,8 +1,18 @@
 package com.example.logintestbackend.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import com.example.logintestbackend.DTO.request.IntrospectRequest;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
@@ -12,8 +22,10 @@ import lombok.*;
 @Configuration
 @ConfigurationProperties(prefix = "app.jwt")
 public class JwtPropertiesConfig {
-    /** Secret key used for HS256 signing (≥ 32 bytes of entropy) */
-    @NotBlank
+    /** Signing algorithm: HS256 (shared secret) or ES256 (rotating EC keys published as JWKS) */
+    private SignatureAlgorithm algorithm = SignatureAlgorithm.HS256;
+
+    /** Secret key used for HS256 signing (≥ 32 bytes of entropy); unused for ES256 */
     private String secret;
 
     /** Access token TTL in minutes */
@@ -23,4 +35,119 @@ public class JwtPropertiesConfig {
     /** Issuer claim */
     @NotBlank
     private String issuer = "logintestbackend";
-}
\ No newline at end of file
+
+    /**
+     * Build the authenticated principal from verified token claims instead of loading the user
+     * from the database on every request. Revocation is enforced via per-user security epochs.
+     */
+    private boolean statelessPrincipal = false;
+
+    /** Use the specialised HS256 verifier for our own token layout (falls back to jjwt otherwise) */
+    private boolean fastPath = true;
+
+    /** Asymmetric key ring settings (ES256 only) */
+    private Keys keys = new Keys();
+
+    /** Optional in-memory cache of verified tokens */
+    private Cache cache = new Cache();
+
+    /** Rotating refresh tokens */
+    private Refresh refresh = new Refresh();
+
+    /** Batch token introspection for gateways */
+    private Introspection introspection = new Introspection();
+
+    /** Redis-backed token revocation */
+    private Revocation revocation = new Revocation();
+
+    @Getter
+    @Setter
+    public static class Cache {
+        /** Enable caching of verified tokens keyed by SHA-256 digest */
+        private boolean enabled = false;
+
+        /** Maximum number of cached tokens */
+        @Min(1)
+        private int maxEntries = 100_000;
+
+        /** Approximate upper bound on heap used by the cache, in bytes */
+        @Min(1024)
+        private long maxBytes = 64L * 1024 * 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Keys {
+        /** How often a new signing key is promoted; each key is published at least jwks-max-age before it signs */
+        private Duration rotationInterval = Duration.ofHours(24);
+
+        /** How often each instance reloads the shared key ring (jwt_signing_keys) */
+        private Duration refreshInterval = Duration.ofMinutes(1);
+
+        /** Cache lifetime advertised on the JWKS endpoint; keep well below the rotation interval */
+        private Duration jwksMaxAge = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Revocation {
+        /** Store revocations in Redis and share them across instances via pub/sub */
+        private boolean enabled = false;
+
+        /** Revoked tokens the local Bloom filter is sized for */
+        @Min(1)
+        private long expectedRevocations = 1_000_000;
+
+        /** Target Bloom filter false-positive rate (each false positive costs one Redis EXISTS) */
+        private double falsePositiveRate = 0.001;
+
+        /** How often the Bloom filter is rebuilt from Redis, dropping expired revocations */
+        private Duration rebuildInterval = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Refresh {
+        /** Issue refresh tokens alongside access tokens and enable /api/auth/refresh */
+        private boolean enabled = false;
+
+        /** Lifetime of a refresh token family from the original login */
+        private Duration ttl = Duration.ofDays(14);
+    }
+
+    @Getter
+    @Setter
+    public static class Introspection {
+        /** Maximum number of tokens accepted in one introspection call */
+        @Min(1) @Max(IntrospectRequest.MAX_TOKENS)
+        private int maxBatch = 1000;
+
+        /** Larger request bodies get 413 before they are parsed */
+        @Min(1)
+        private int maxBodyBytes = 2 * 1024 * 1024;
+
+        /** Gateways allowed to call introspection (HTTP Basic); with none, every call gets 401 */
+        @Valid
+        private List<Client> clients = new ArrayList<>();
+
+        /** Tokens longer than this are reported inactive without parsing */
+        @Min(1)
+        private int maxTokenLength = 8192;
+
+        /** Worker threads used to verify a batch in parallel (defaults to available cores) */
+        @Min(1)
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        @Getter
+        @Setter
+        public static class Client {
+            /** HTTP Basic user name */
+            @NotBlank
+            private String id;
+
+            /** HTTP Basic password */
+            @NotBlank
+            private String secret;
+        }
+    }
+}
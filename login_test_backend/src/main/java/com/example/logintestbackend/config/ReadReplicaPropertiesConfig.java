@@ -0,0 +1,52 @@
+package com.example.logintestbackend.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.datasource.read-replicas")
+public class ReadReplicaPropertiesConfig {
+
+    /** Route read-only transactions to the replicas below (the primary is spring.datasource) */
+    private boolean enabled = false;
+
+    /** Streaming replicas of the primary, used round-robin while healthy */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /** Connections per replica pool */
+    @Min(1)
+    private int maximumPoolSize = 20;
+
+    /** How long to wait for a replica connection before falling back to the primary */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    /** How often replica reachability and replay lag are checked */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * Replicas further behind than this are skipped. Reads on a thread within this long
+     * of its last write also go to the primary, so a request sees its own writes.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+
+        /** Defaults to spring.datasource.username */
+        private String username;
+
+        /** Defaults to spring.datasource.password */
+        private String password;
+    }
+}
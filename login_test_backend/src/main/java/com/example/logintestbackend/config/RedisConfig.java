@@ -0,0 +1,35 @@
+package com.example.logintestbackend.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.example.logintestbackend.security.TokenRevocationService;
+
+/**
+ * Redis wiring used only when token revocation is enabled ({@code app.jwt.revocation.enabled=true}).
+ *
+ * Spring Boot still auto-configures a connection factory either way, but Lettuce connects
+ * lazily: with revocation and the Redis rate-limit tier off nothing asks it for a connection,
+ * and the Redis health indicator follows {@code app.jwt.revocation.enabled}
+ * ({@code management.health.redis.enabled} in application.yaml).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.jwt.revocation", name = "enabled", havingValue = "true")
+public class RedisConfig {
+
+    /**
+     * Subscribes {@link TokenRevocationService} to revocations published by other instances.
+     */
+    @Bean
+    public RedisMessageListenerContainer revocationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                     TokenRevocationService revocations) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(revocations, new ChannelTopic(TokenRevocationService.CHANNEL));
+        return container;
+    }
+}
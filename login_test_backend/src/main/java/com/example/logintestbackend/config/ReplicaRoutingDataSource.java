@@ -0,0 +1,194 @@
+package com.example.logintestbackend.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Source of connections for read-only transactions (see {@link DataSourceRoutingConfig}).
+ *
+ * Responsibilities:
+ * - Hand out replica connections round-robin, skipping replicas that are down or lag
+ *   more than {@code max-lag}; fall back to the primary when none is usable.
+ * - Send reads to the primary on a thread that wrote within {@code max-lag}
+ *   ({@link #markWrite()}), and inside {@link #onPrimary(Supplier)}.
+ * - Check every replica's reachability, WAL streaming and replay lag every
+ *   {@code health-check-interval}; a replica disconnected from the primary leaves rotation.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    /**
+     * Replay lag in seconds; 0 when the replica has replayed everything it received, -1 when
+     * its WAL receiver is not streaming (a disconnected replica has replayed everything it
+     * received, yet may be arbitrarily stale). Without pg_read_all_stats only the receiver's
+     * pid is visible, which still tells whether it runs.
+     */
+    private static final String LAG_SQL = """
+            select case when not pg_is_in_recovery() then 0
+                        when not exists (select 1 from pg_stat_wal_receiver
+                                          where pid is not null and coalesce(status, 'streaming') = 'streaming') then -1
+                        when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                        else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)
+                   end
+            """;
+
+    private static final ThreadLocal<Long> LAST_WRITE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Counter> routed = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<HikariDataSource> replicaPools,
+                                    ReadReplicaPropertiesConfig cfg,
+                                    MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.maxLagNanos = cfg.getMaxLag().toNanos();
+        this.registry = registry;
+
+        for (Replica r : replicas) {
+            Gauge.builder("db.replica.healthy", r, x -> x.healthy ? 1 : 0)
+                    .tag("pool", r.pool.getPoolName())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Note that the current thread just wrote to the primary.
+     */
+    public static void markWrite() {
+        LAST_WRITE.set(System.nanoTime());
+    }
+
+    /**
+     * Run a read against the primary, e.g. to re-check a miss that a lagging replica
+     * may not have replayed yet. Only affects transactions started inside {@code read}.
+     */
+    public <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) PINNED.remove(); else PINNED.set(previous);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (PINNED.get() != null) return fromPrimary("pinned");
+        Long lastWrite = LAST_WRITE.get();
+        if (lastWrite != null) {
+            if (System.nanoTime() - lastWrite < maxLagNanos) return fromPrimary("after_write");
+            LAST_WRITE.remove();
+        }
+
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (!r.healthy) continue;
+            try {
+                Connection con = r.pool.getConnection();
+                count(r.pool.getPoolName(), "replica");
+                return con;
+            } catch (SQLException e) {
+                markDown(r, e.getMessage());
+            }
+        }
+        return fromPrimary("no_healthy_replica");
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Replica pools use their configured credentials");
+    }
+
+    /**
+     * Mark each replica healthy if it answers and has replayed to within {@code max-lag}.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.read-replicas.health-check-interval:PT5S}")
+    public void checkHealth() {
+        for (Replica r : replicas) {
+            try (Connection con = r.pool.getConnection();
+                 Statement st = con.createStatement()) {
+                st.setQueryTimeout(5);
+                double lagSeconds;
+                try (ResultSet rs = st.executeQuery(LAG_SQL)) {
+                    rs.next();
+                    lagSeconds = rs.getDouble(1);
+                }
+                if (!con.getAutoCommit()) con.rollback();
+                if (lagSeconds < 0) {
+                    markDown(r, "WAL receiver not streaming");
+                } else if (lagSeconds * 1e9 > maxLagNanos) {
+                    markDown(r, "replay lag " + lagSeconds + "s");
+                } else if (!r.healthy) {
+                    r.healthy = true;
+                    log.info("Replica {} is back in rotation", r.pool.getPoolName());
+                }
+            } catch (SQLException e) {
+                markDown(r, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(r -> r.pool.close());
+    }
+
+    // ---- Internal Methods ----
+
+    private Connection fromPrimary(String reason) throws SQLException {
+        count("primary", reason);
+        return primary.getConnection();
+    }
+
+    private void markDown(Replica r, String reason) {
+        if (r.healthy) log.warn("Replica {} taken out of rotation: {}", r.pool.getPoolName(), reason);
+        r.healthy = false;
+    }
+
+    private void count(String target, String reason) {
+        routed.computeIfAbsent(target + '|' + reason, k -> Counter.builder("db.read_routing.connections")
+                        .tag("target", target)
+                        .tag("reason", reason)
+                        .register(registry))
+                .increment();
+    }
+
+    private static final class Replica {
+        final HikariDataSource pool;
+        volatile boolean healthy;
+
+        Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.logintestbackend.config;
 
 import com.example.logintestbackend.security.GoogleOAuth2UserService;
+import com.example.logintestbackend.security.IntrospectionClientFilter;
 import com.example.logintestbackend.security.JwtAuthenticationFilter;
+import com.example.logintestbackend.security.LoginRateLimitFilter;
 import com.example.logintestbackend.security.OAuth2SuccessHandler;
+import com.example.logintestbackend.security.PasswordCostCalibrator;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,7 +14,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -33,16 +35,21 @@ import lombok.*;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtFilter;
+    private final LoginRateLimitFilter loginRateLimitFilter;
+    private final IntrospectionClientFilter introspectionClientFilter;
     private final OAuth2SuccessHandler oAuth2SuccessHandler;
     private final GoogleOAuth2UserService googleOAuth2UserService;
 
 
     /**
      * Password encoder bean. 
-     * Uses BCrypt to hash passwords for local (non-Google) accounts.
+     * Uses BCrypt to hash passwords for local (non-Google) accounts, at a cost calibrated
+     * to this host (see {@link PasswordCostCalibrator}).
      */
     @Bean
-    public PasswordEncoder passwordEncoder() { return new BCryptPasswordEncoder(); }
+    public PasswordEncoder passwordEncoder(AuthPropertiesConfig authPropertiesConfig) {
+        return PasswordCostCalibrator.calibratedEncoder(authPropertiesConfig.getHashing());
+    }
 
     /**
      * Defines the security filter chain:
@@ -52,6 +59,8 @@ public class SecurityConfig {
      * - Configure endpoint authorization
      * - Set up Google OAuth2 login with custom OIDC user service + success handler
      * - Insert JWT filter before UsernamePasswordAuthenticationFilter
+     * - Insert login rate-limit filter before the JWT filter
+     * - Insert the gateway authentication filter for introspection before the JWT filter
      */
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -63,9 +72,22 @@ public class SecurityConfig {
             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
              // Authorization rules for API endpoints
             .authorizeHttpRequests(auth -> auth
+                // Token revocation needs the caller's own token
+                .requestMatchers("/api/auth/logout", "/api/auth/logout-all")
+                .authenticated()
+
+                // Batch introspection is for gateways only (see IntrospectionClientFilter)
+                .requestMatchers("/api/auth/introspect")
+                .hasRole(IntrospectionClientFilter.ROLE)
+
                 // Public endpoints
                 .requestMatchers("/api/auth", "/api/auth/**",
-                                 "/oauth2/**", "/login/oauth2/**")
+                                 "/oauth2/**", "/login/oauth2/**",
+                                 "/.well-known/jwks.json")
+                .permitAll()
+
+                // Health and Prometheus scrape (keep the management port private in production)
+                .requestMatchers("/actuator/health", "/actuator/prometheus")
                 .permitAll()
 
                 // Everythin else requires authentication
@@ -81,7 +103,13 @@ public class SecurityConfig {
             )
 
             // Register our JWT filter before Spring Security’s built-in username/password filter
-            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // Throttle login/registration attempts before any DB or BCrypt work
+            .addFilterBefore(loginRateLimitFilter, JwtAuthenticationFilter.class)
+
+            // Gateway credentials and a body cap for introspection, before any parsing
+            .addFilterBefore(introspectionClientFilter, JwtAuthenticationFilter.class);
 
             http.httpBasic(h -> h.disable());
             http.formLogin(f -> f.disable());
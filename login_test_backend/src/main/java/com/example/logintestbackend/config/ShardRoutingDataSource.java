@@ -0,0 +1,88 @@
+package com.example.logintestbackend.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Connections for the user shard selected on the calling thread (see {@link #call(int, Supplier)});
+ * without a selection, connections come from the main database.
+ *
+ * Each shard has a plain pool ({@link #shard(int)}) and a routing target, which is either that
+ * pool or, with connection bulkheads, the shard's per-workload pools in front of it.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final List<HikariDataSource> shards;
+    private final List<DataSource> targets;
+
+    /**
+     * @param main    connections when no shard is selected
+     * @param shards  each shard's pool
+     * @param targets where routed connections come from, per shard (the pool itself or a router over it)
+     */
+    public ShardRoutingDataSource(DataSource main, List<HikariDataSource> shards, List<DataSource> targets) {
+        this.shards = shards;
+        this.targets = targets;
+        Map<Object, Object> byShard = new HashMap<>();
+        for (int i = 0; i < targets.size(); i++) byShard.put(i, targets.get(i));
+        setTargetDataSources(byShard);
+        setDefaultTargetDataSource(main);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Run {@code work} against one shard. Transactions started (or first touching the
+     * database) inside it use that shard for their whole lifetime.
+     */
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) CURRENT.remove(); else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @return the shard selected on the calling thread, or null for the main database
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Direct access to one shard's default pool, for tools that manage their own connections.
+     */
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource target : targets) {
+            if (target instanceof DisposableBean router) router.destroy();
+        }
+        shards.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.logintestbackend.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.logintestbackend.repository.UserRepository;
+import com.example.logintestbackend.repository.UserShardRoutingInterceptor;
+import com.example.logintestbackend.service.UserShards;
+
+/**
+ * Sharded user store, enabled by {@code app.sharding.enabled}: installs
+ * {@link UserShardRoutingInterceptor} as the outermost advice of the {@link UserRepository}
+ * proxy, so callers keep using the repository as before. Shard pools are built by
+ * {@link DataSourceRoutingConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public UserShardRoutingInterceptor userShardRoutingInterceptor(UserShards shards,
+                                                                   PlatformTransactionManager txManager) {
+        return new UserShardRoutingInterceptor(shards, txManager);
+    }
+
+    @Bean
+    public static BeanPostProcessor userRepositoryShardRouting(ObjectProvider<UserShardRoutingInterceptor> interceptor) {
+        // Resolved on first call: the interceptor depends on beans created after the repository
+        MethodInterceptor advice = invocation -> interceptor.getObject().invoke(invocation);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, info) -> {
+                                if (UserRepository.class.equals(info.getRepositoryInterface())) {
+                                    proxy.addAdvice(0, advice);
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+}
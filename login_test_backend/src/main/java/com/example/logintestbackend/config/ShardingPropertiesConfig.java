@@ -0,0 +1,56 @@
+package com.example.logintestbackend.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingPropertiesConfig {
+
+    /**
+     * Store users on the shards below, placed by a hash of the normalised email. Everything
+     * else (refresh tokens, the shard map, the OAuth directory) stays on spring.datasource.
+     */
+    private boolean enabled = false;
+
+    /** Shard databases; shard 0 may be the spring.datasource database itself */
+    private List<Shard> shards = new ArrayList<>();
+
+    /** Connections per shard pool */
+    @Min(1)
+    private int maximumPoolSize = 10;
+
+    /** How long a caller waits for a shard connection before failing */
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+
+    /** Run the offline resharding tool at startup and exit (the application must be stopped) */
+    private boolean reshard = false;
+
+    /**
+     * Number of shards (the first N configured) to spread users over when resharding;
+     * defaults to all configured shards. Lower it to drain the trailing shards.
+     */
+    @Min(1)
+    private Integer reshardTargetShards;
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String url;
+
+        /** Defaults to spring.datasource.username */
+        private String username;
+
+        /** Defaults to spring.datasource.password */
+        private String password;
+    }
+}
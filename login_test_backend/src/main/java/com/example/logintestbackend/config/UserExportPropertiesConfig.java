@@ -0,0 +1,39 @@
+package com.example.logintestbackend.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.logintestbackend.enums.UserFileFormat;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.user-export")
+public class UserExportPropertiesConfig {
+
+    /** Target file; when set the application exports the users table at startup and exits */
+    private Path file;
+
+    /** Output format; detected from the file extension (.csv, .ndjson/.jsonl, optionally .gz) when unset */
+    private UserFileFormat format;
+
+    /** Gzip the output; defaults to true when the file name ends in .gz */
+    private Boolean gzip;
+
+    /** Rows fetched per round trip by the server-side cursor */
+    @Min(100) @Max(100_000)
+    private int fetchSize = 10_000;
+
+    /** Include password hashes (off by default: exports usually leave the auth boundary) */
+    private boolean includePasswordHashes = false;
+
+    /** Log progress every this many rows */
+    @Min(1)
+    private long progressEvery = 1_000_000;
+}
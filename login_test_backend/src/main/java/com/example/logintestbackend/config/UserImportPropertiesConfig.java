@@ -0,0 +1,46 @@
+package com.example.logintestbackend.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.logintestbackend.enums.UserFileFormat;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.user-import")
+public class UserImportPropertiesConfig {
+
+    /** Source file; when set the application imports it at startup and exits */
+    private Path file;
+
+    /** Input format; detected from the file extension (.csv, .ndjson/.jsonl, optionally .gz) when unset */
+    private UserFileFormat format;
+
+    /** Rows hashed and written per transaction (also the checkpoint granularity) */
+    @Min(1) @Max(100_000)
+    private int chunkSize = 5_000;
+
+    /** Threads hashing plaintext passwords (defaults to available cores) */
+    @Min(1)
+    private int hashThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * BCrypt cost for plaintext passwords; uses the calibrated login cost when unset.
+     * A lower cost speeds up the import, and rehash-on-login raises it at each user's next login.
+     */
+    @Min(4) @Max(31)
+    private Integer hashStrength;
+
+    /** Rejected rows with the reason (defaults to {@code <file>.rejects}) */
+    private Path rejectsFile;
+
+    /** Progress for resuming an interrupted import (defaults to {@code <file>.checkpoint}) */
+    private Path checkpointFile;
+}
@@ -1,13 +1,19 @@
 package com.example.logintestbackend.controller;
 
 import com.example.logintestbackend.DTO.request.LoginRequest;
+import com.example.logintestbackend.DTO.request.RefreshRequest;
 import com.example.logintestbackend.DTO.request.RegisterRequest;
 import com.example.logintestbackend.DTO.response.AuthResponse;
+import com.example.logintestbackend.security.VerifiedToken;
 import com.example.logintestbackend.service.impl.AuthServiceImpl;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,12 +36,12 @@ public class AuthController {
         @ApiResponse(responseCode = "200", description = "Successfully authenticated"),
         @ApiResponse(responseCode = "401", description = "Invalid credentials"),
         @ApiResponse(responseCode = "404", description = "User not found"),
+        @ApiResponse(responseCode = "503", description = "Too many concurrent logins, retry after the Retry-After delay"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
+        return authService.login(request).thenApply(ResponseEntity::ok);
     }
 
     /**
@@ -47,11 +53,54 @@ public class AuthController {
         @ApiResponse(responseCode = "201", description = "User successfully registered"),
         @ApiResponse(responseCode = "400", description = "Invalid input data (e.g. weak password, bad email format)"),
         @ApiResponse(responseCode = "409", description = "User already exists with this email"),
+        @ApiResponse(responseCode = "503", description = "Too many concurrent registrations, retry after the Retry-After delay"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/users")
-    public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
-        return ResponseEntity.status(201).body(response);
+    public CompletableFuture<ResponseEntity<AuthResponse>> register(@Valid @RequestBody RegisterRequest request) {
+        return authService.register(request).thenApply(response -> ResponseEntity.status(201).body(response));
+    }
+
+    /**
+     * Exchange a refresh token for a new access token.
+     * The presented refresh token is consumed and a new one is returned.
+     */
+    @Operation(summary = "Refresh access token")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "New tokens issued"),
+        @ApiResponse(responseCode = "401", description = "Refresh token invalid, expired, revoked or reused")
+    })
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    /**
+     * Revoke the access token used for this request.
+     */
+    @Operation(summary = "Logout (revoke current token)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Token revoked"),
+        @ApiResponse(responseCode = "400", description = "Token cannot be revoked individually"),
+        @ApiResponse(responseCode = "401", description = "Not authenticated")
+    })
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(Authentication authentication) {
+        authService.logout((VerifiedToken) authentication.getCredentials());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Revoke every access token issued to the current user.
+     */
+    @Operation(summary = "Logout everywhere (revoke all tokens of the current user)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "All tokens revoked"),
+        @ApiResponse(responseCode = "401", description = "Not authenticated")
+    })
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutEverywhere(Authentication authentication) {
+        authService.logoutEverywhere(authentication.getName());
+        return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,42 @@
+package com.example.logintestbackend.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.logintestbackend.DTO.request.IntrospectRequest;
+import com.example.logintestbackend.DTO.response.IntrospectResponse;
+import com.example.logintestbackend.service.TokenIntrospectionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/auth/introspect")
+@RequiredArgsConstructor
+public class IntrospectionController {
+
+    private final TokenIntrospectionService introspectionService;
+
+    /**
+     * Batch introspection for gateways (HTTP Basic, see {@code app.jwt.introspection.clients}).
+     * Verifies every token (signature, expiry, issuer, revocation) in parallel and
+     * returns one compact result per token, in request order.
+     */
+    @Operation(summary = "Introspect a batch of access tokens")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "One result per token"),
+        @ApiResponse(responseCode = "400", description = "Empty batch or too many tokens"),
+        @ApiResponse(responseCode = "401", description = "Missing or wrong gateway credentials"),
+        @ApiResponse(responseCode = "413", description = "Request body larger than max-body-bytes")
+    })
+    @PostMapping
+    public ResponseEntity<IntrospectResponse> introspect(@Valid @RequestBody IntrospectRequest request) {
+        return ResponseEntity.ok(new IntrospectResponse(introspectionService.introspect(request.getTokens())));
+    }
+}
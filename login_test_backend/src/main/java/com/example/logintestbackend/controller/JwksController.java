@@ -0,0 +1,36 @@
+package com.example.logintestbackend.controller;
+
+import java.util.Map;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.security.JwtKeyRing;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+    private final JwtPropertiesConfig jwtPropertiesConfig;
+
+    /**
+     * Public JWK Set used by other services to verify our tokens locally.
+     * Contains the signing key, the next key and any retired keys still within token TTL.
+     * Empty when running with HS256.
+     */
+    @Operation(summary = "JSON Web Key Set for token verification")
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(jwtPropertiesConfig.getKeys().getJwksMaxAge()).cachePublic())
+                .body(keyRing.jwks());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.logintestbackend.entity;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import com.example.logintestbackend.enums.Provider;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A single refresh token in a rotation family.
+ * Only the SHA-256 hash of the token is stored; the raw value is returned to the client once.
+ * Everything needed to mint the next access token (uid, email, provider) is kept on the row,
+ * so a refresh never reloads the user.
+ */
+@Builder
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+    name = "refresh_tokens",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "ux_refresh_tokens_hash", columnNames = "token_hash")
+    }
+)
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false)
+    private String tokenHash;
+
+    /** All tokens descending from one login share a family; reuse revokes the whole family */
+    @Column(name = "family_id", nullable = false)
+    private String familyId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "provider", nullable = false)
+    private Provider provider;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /** Set when the token is exchanged; a second exchange is a reuse */
+    @Column(name = "used_at")
+    private Instant usedAt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean revoked = false;
+
+    @Column(name = "created_at", nullable = false)
+    @CreationTimestamp
+    private Instant createdAt;
+}
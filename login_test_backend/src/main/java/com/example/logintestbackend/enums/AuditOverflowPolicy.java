@@ -0,0 +1,11 @@
+package com.example.logintestbackend.enums;
+
+/**
+ * What the login audit log does with an event when its buffer is full.
+ */
+public enum AuditOverflowPolicy {
+    /** Discard the event and count it ({@code auth.audit.events{result=dropped}}) */
+    DROP,
+    /** Wait up to {@code block-timeout} for space, then drop and count */
+    BLOCK
+}
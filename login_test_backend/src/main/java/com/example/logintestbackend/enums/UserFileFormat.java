@@ -0,0 +1,27 @@
+package com.example.logintestbackend.enums;
+
+import java.util.Locale;
+
+/**
+ * File formats for bulk user import and export.
+ */
+public enum UserFileFormat {
+    /** Comma-separated, header row first, one record per line */
+    CSV,
+    /** One JSON object per line */
+    NDJSON;
+
+    /**
+     * Detect the format from a file name ({@code .csv}, {@code .ndjson} or {@code .jsonl},
+     * optionally followed by {@code .gz}).
+     *
+     * @throws IllegalArgumentException if the extension is not recognised
+     */
+    public static UserFileFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+        throw new IllegalArgumentException("Cannot detect CSV/NDJSON format of " + fileName);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.logintestbackend.exception;
+
+/**
+ * Thrown when a refresh token is unknown, expired, revoked or being reused.
+ */
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.logintestbackend.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the password hashing queue is full; mapped to 503 with Retry-After.
+ */
+@Getter
+public class PasswordHashingBusyException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public PasswordHashingBusyException(int retryAfterSeconds) {
+        super("Too many concurrent sign-in attempts, please retry shortly");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
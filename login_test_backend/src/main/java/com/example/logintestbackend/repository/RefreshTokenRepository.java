@@ -0,0 +1,54 @@
+package com.example.logintestbackend.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.logintestbackend.entity.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Find a refresh token by the hash of its raw value.
+     *
+     * @param tokenHash SHA-256 of the raw token (base64url)
+     * @return Optional containing the token if found, empty otherwise
+     */
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Atomically mark a token as used. Only one caller can win for a given token.
+     *
+     * @return 1 if this call consumed the token, 0 if it was already used or revoked
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.usedAt = :now where r.tokenHash = :hash and r.usedAt is null and r.revoked = false")
+    int markUsed(@Param("hash") String tokenHash, @Param("now") Instant now);
+
+    /**
+     * Revoke every token in a rotation family (reuse detected).
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.revoked = true where r.familyId = :familyId")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    /**
+     * Revoke every refresh token of a user ("log out everywhere").
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.revoked = true where r.email = :email and r.revoked = false")
+    int revokeAllForEmail(@Param("email") String email);
+
+    /**
+     * Delete tokens that can no longer be exchanged.
+     */
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") Instant cutoff);
+}
@@ -1,13 +1,25 @@
 package com.example.logintestbackend.repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.logintestbackend.DTO.projection.AuthUserView;
+import com.example.logintestbackend.DTO.projection.GoogleUpsertResult;
 import com.example.logintestbackend.entity.User;
 import com.example.logintestbackend.enums.Provider;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
@@ -19,6 +31,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Lean lookup for the authentication hot path: only the columns needed to verify
+     * a login, as an unmanaged record (no entity hydration, no auto-flush before the query).
+     * Read-only, so it is served by a replica when read replicas are enabled.
+     *
+     * @param email normalised user email
+     * @return Optional containing the view if found, empty otherwise
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("select new com.example.logintestbackend.DTO.projection.AuthUserView("
+            + "u.id, u.email, u.passwordHash, u.name, u.provider, u.enabled) "
+            + "from User u where u.email = :email")
+    Optional<AuthUserView> findAuthViewByEmail(@Param("email") String email);
+
     /**
      * Find a user by their OAuth provider ID and provider type.
      * Useful for Google/Facebook login to link external identity to local account.
@@ -37,4 +64,110 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return true if a user with this email exists, false otherwise
      */
     boolean existsByEmail(String email);
+
+    /**
+     * Create a local account in one round trip. Concurrent registrations of the same
+     * email are settled by the unique index: exactly one caller gets an id.
+     *
+     * @return the new user's id, or empty if the email is already registered
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            insert into users (email, password_hash, name, provider, enabled)
+            values (:email, :passwordHash, :name, 'LOCAL', true)
+            on conflict (email) do nothing
+            returning id
+            """)
+    Optional<Long> insertLocalIfAbsent(@Param("email") String email,
+                                       @Param("passwordHash") String passwordHash,
+                                       @Param("name") String name);
+
+    /**
+     * Link or create a Google account in one statement.
+     *
+     * The target row is the one with this Google subject, else the one with this email
+     * (same precedence as before). It is only written when provider, oauth_id, name
+     * (filled in if missing) or enabled actually differ, so a returning user costs a
+     * single read and no row version. A new email is inserted; if a concurrent insert
+     * wins the race, nothing is returned and the caller should retry.
+     *
+     * @return the resulting row, or empty on a lost insert race
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            with target as (
+                (select id, provider, enabled from users
+                  where oauth_id = cast(:sub as text) and provider = 'GOOGLE')
+                union all
+                (select id, provider, enabled from users where email = cast(:email as text))
+                limit 1
+            ),
+            upd as (
+                update users u
+                   set provider = 'GOOGLE',
+                       oauth_id = cast(:sub as text),
+                       name = coalesce(u.name, cast(:name as text)),
+                       enabled = true,
+                       updated_at = now()
+                  from target t
+                 where u.id = t.id
+                   and (u.provider <> 'GOOGLE'
+                        or u.oauth_id is distinct from cast(:sub as text)
+                        or (u.name is null and cast(:name as text) is not null)
+                        or not u.enabled)
+                returning u.id, u.email, u.name, true as changed,
+                          (t.provider <> 'GOOGLE' or not t.enabled) as relinked
+            ),
+            ins as (
+                insert into users (email, name, provider, oauth_id, enabled)
+                select cast(:email as text), cast(:name as text), 'GOOGLE', cast(:sub as text), true
+                 where not exists (select 1 from target)
+                on conflict do nothing
+                returning id, email, name, true as changed, false as relinked
+            )
+            select id, email, name, changed, relinked from upd
+            union all
+            select id, email, name, changed, relinked from ins
+            union all
+            select u.id, u.email, u.name, false, false
+              from users u join target t on u.id = t.id
+             where not exists (select 1 from upd)
+            """)
+    Optional<GoogleUpsertResult> upsertGoogleUser(@Param("sub") String sub,
+                                                  @Param("email") String email,
+                                                  @Param("name") String name);
+
+    /**
+     * Stream every email (no entity hydration). Must be consumed inside a transaction;
+     * with sharding, once per shard ({@code UserShards.forEachShard}).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
+    /**
+     * Replace a password hash, but only if it is still the one that was verified.
+     * A concurrent password change wins over a background rehash. Keyed by email so the
+     * call can be routed to the user's shard.
+     *
+     * @return 1 if the hash was replaced, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("update User u set u.passwordHash = :next where u.email = :email and u.passwordHash = :current")
+    int replacePasswordHash(@Param("email") String email, @Param("current") String current, @Param("next") String next);
+
+    /**
+     * Raise a user's security epoch; never lowers it, so concurrent bumps settle on the
+     * latest. Keyed by email so the call can be routed to the user's shard.
+     *
+     * @return the epoch now stored, or empty if there is no such user
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            update users set security_epoch = greatest(security_epoch, :epoch)
+             where email = :email
+            returning security_epoch
+            """)
+    Optional<Long> raiseSecurityEpoch(@Param("email") String email, @Param("epoch") long epoch);
 }
@@ -0,0 +1,111 @@
+package com.example.logintestbackend.repository;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Optional;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.DTO.projection.GoogleUpsertResult;
+import com.example.logintestbackend.config.ShardRoutingDataSource;
+import com.example.logintestbackend.entity.User;
+import com.example.logintestbackend.enums.Provider;
+import com.example.logintestbackend.service.UserShards;
+
+/**
+ * Routes {@link UserRepository} calls to the user's shard when sharding is enabled
+ * (installed on the repository proxy by {@code ShardingConfig}).
+ *
+ * Responsibilities:
+ * - Email-keyed methods run on {@code shardOf(email)}; OAuth-keyed methods resolve the email
+ *   through the OAuth directory first. Every lookup touches exactly one shard.
+ * - Run each routed call in its own transaction on that shard, suspending any caller
+ *   transaction (which stays on the main database, e.g. for {@code pg_notify}).
+ * - Keep the OAuth directory up to date after Google upserts and saves.
+ * - Leave calls alone when the caller already picked a shard ({@link UserShards#onShard},
+ *   {@link UserShards#forEachShard}); refuse other methods, which cannot be answered
+ *   from one shard.
+ */
+public class UserShardRoutingInterceptor implements MethodInterceptor {
+
+    private final UserShards shards;
+    private final TransactionTemplate readTx;
+    private final TransactionTemplate writeTx;
+
+    public UserShardRoutingInterceptor(UserShards shards, PlatformTransactionManager txManager) {
+        this.shards = shards;
+        this.writeTx = new TransactionTemplate(txManager);
+        this.writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTx.setReadOnly(true);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (ShardRoutingDataSource.current() != null
+                || invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+
+        String method = invocation.getMethod().getName();
+        Object[] args = invocation.getArguments();
+        switch (method) {
+            case "findByEmail", "findAuthViewByEmail", "existsByEmail":
+                return onShard(shards.shardOf((String) args[0]), readTx, invocation);
+
+            case "insertLocalIfAbsent", "replacePasswordHash", "raiseSecurityEpoch":
+                return onShard(shards.shardOf((String) args[0]), writeTx, invocation);
+
+            case "findByOauthIdAndProvider": {
+                Optional<String> email = shards.emailForOauth((Provider) args[1], (String) args[0]);
+                return email.isEmpty() ? Optional.empty() : onShard(shards.shardOf(email.get()), readTx, invocation);
+            }
+
+            case "upsertGoogleUser": {
+                String sub = (String) args[0];
+                Optional<String> linked = shards.emailForOauth(Provider.GOOGLE, sub);
+                int shard = shards.shardOf(linked.orElse((String) args[1]));
+                @SuppressWarnings("unchecked")
+                Optional<GoogleUpsertResult> result = (Optional<GoogleUpsertResult>) onShard(shard, writeTx, invocation);
+                result.filter(r -> r.isChanged() || linked.isEmpty())
+                        .ifPresent(r -> shards.recordOauth(Provider.GOOGLE, sub, r.getEmail()));
+                return result;
+            }
+
+            case "save", "saveAndFlush":
+                if (args[0] instanceof User user) {
+                    Object saved = onShard(shards.shardOf(user.getEmail()), writeTx, invocation);
+                    if (user.getOauthId() != null) shards.recordOauth(user.getProvider(), user.getOauthId(), user.getEmail());
+                    return saved;
+                }
+                break;
+
+            default:
+                break;
+        }
+        throw new UnsupportedOperationException("UserRepository." + method
+                + " spans shards; call it inside UserShards.onShard or forEachShard");
+    }
+
+    // ---- Internal Methods ----
+
+    private Object onShard(int shard, TransactionTemplate tx, MethodInvocation invocation) throws Throwable {
+        try {
+            return shards.onShard(shard, () -> tx.execute(status -> {
+                try {
+                    return invocation.proceed();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            }));
+        } catch (UndeclaredThrowableException e) {
+            throw e.getUndeclaredThrowable();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.logintestbackend.security;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the address of the client behind any trusted reverse proxies.
+ *
+ * Responsibilities:
+ * - Read {@code X-Forwarded-For} only when the connection comes from one of
+ *   {@code app.auth.trusted-proxies} (IP addresses or CIDR ranges).
+ * - Walk the header right to left, skipping trusted hops, and return the first untrusted
+ *   address: entries further left are supplied by the client and can be forged.
+ * - Never resolve host names; a malformed hop ends the walk at the last address known to
+ *   be genuine.
+ * - Return addresses in canonical form, so rate-limit keys and audit rows do not depend on
+ *   how a proxy spelled them.
+ *
+ * With no trusted proxies configured this is {@code request.getRemoteAddr()}.
+ */
+@Component
+public class ClientIpResolver {
+
+    public static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final List<Cidr> trustedProxies = new ArrayList<>();
+
+    public ClientIpResolver(AuthPropertiesConfig authPropertiesConfig) {
+        for (String entry : authPropertiesConfig.getTrustedProxies()) {
+            if (!entry.isBlank()) trustedProxies.add(Cidr.parse(entry.trim()));
+        }
+    }
+
+    /**
+     * @return the client address of {@code request} in canonical form
+     *         ({@link InetAddress#getHostAddress()}, no IPv6 scope)
+     */
+    public String resolve(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        InetAddress remoteIp = literal(remote);
+        if (remoteIp == null) return remote;
+        if (trustedProxies.isEmpty() || !isTrusted(remoteIp)) return remoteIp.getHostAddress();
+
+        List<String> hops = new ArrayList<>();
+        for (var headers = request.getHeaders(FORWARDED_FOR); headers.hasMoreElements(); ) {
+            for (String hop : headers.nextElement().split(",")) hops.add(hop.trim());
+        }
+
+        InetAddress client = remoteIp;
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            InetAddress hop = literal(hops.get(i));
+            if (hop == null) break;
+            client = hop;
+            if (!isTrusted(hop)) break;
+        }
+        return client.getHostAddress();
+    }
+
+    /**
+     * @return {@code address} in the canonical form returned by {@link #resolve}, or null if it
+     *         is not an IPv4/IPv6 literal
+     */
+    public static String canonical(String address) {
+        InetAddress ip = literal(address);
+        return ip == null ? null : ip.getHostAddress();
+    }
+
+    // ---- Internal Methods ----
+
+    private boolean isTrusted(InetAddress ip) {
+        for (Cidr cidr : trustedProxies) {
+            if (cidr.contains(ip)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Strict literal parsing: four dotted decimal octets, or an IPv6 form (anything containing
+     * {@code ':'}, optionally with a {@code %scope} suffix, which is dropped). Everything else,
+     * including host names and legacy IPv4 shorthands such as {@code 1.2} or {@code 0x7f.1},
+     * is rejected before {@link InetAddress#getByName} could treat it as a name to look up.
+     *
+     * @return the address, or null if {@code value} is not a literal (no DNS lookups)
+     */
+    private static InetAddress literal(String value) {
+        if (value == null || value.isEmpty()) return null;
+        String address = value;
+        if (value.indexOf(':') >= 0) {
+            int scope = value.indexOf('%');
+            if (scope >= 0) address = value.substring(0, scope);
+            for (int i = 0; i < address.length(); i++) {
+                char c = address.charAt(i);
+                boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+                if (!hex && c != '.' && c != ':') return null;
+            }
+        } else if (!isDottedQuad(value)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static boolean isDottedQuad(String value) {
+        int octets = 0;
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf('.', start);
+            if (end < 0) end = value.length();
+            int len = end - start;
+            if (len < 1 || len > 3 || ++octets > 4) return false;
+            int octet = 0;
+            for (int i = start; i < end; i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') return false;
+                octet = octet * 10 + (c - '0');
+            }
+            if (octet > 255) return false;
+            start = end + 1;
+        }
+        return octets == 4;
+    }
+
+    /**
+     * An address range; a bare address is a range of one.
+     */
+    private record Cidr(byte[] network, int prefix) {
+
+        static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            InetAddress address = literal(slash < 0 ? value : value.substring(0, slash));
+            if (address == null) {
+                throw new IllegalStateException("app.auth.trusted-proxies: not an IP address or CIDR range: " + value);
+            }
+            byte[] network = address.getAddress();
+            int prefix = network.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(value.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    prefix = -1;
+                }
+                if (prefix < 0 || prefix > network.length * 8) {
+                    throw new IllegalStateException("app.auth.trusted-proxies: invalid prefix length: " + value);
+                }
+            }
+            return new Cidr(network, prefix);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] candidate = address.getAddress();
+            if (candidate.length != network.length) return false;
+            int full = prefix / 8;
+            for (int i = 0; i < full; i++) {
+                if (candidate[i] != network[i]) return false;
+            }
+            int rest = prefix % 8;
+            if (rest == 0) return true;
+            int mask = 0xff << (8 - rest);
+            return (candidate[full] & mask) == (network[full] & mask);
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.springframework.security.authentication.*;
 import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.*;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import lombok.Getter;
@@ -17,7 +16,7 @@ import lombok.Setter;
  * 
  * Responsibilities:
  *  - Load a user by email (delegates to {@link UserPrincipalService})
- *  - Compare raw password against encoded password in DB (via {@link PasswordEncoder})
+ *  - Compare raw password against encoded password in DB (on the bounded {@link PasswordHashingExecutor})
  *  - Perform built-in account checks (locked, disabled, expired, etc.)
  *
  * This provider is registered in Spring Security and is called automatically
@@ -29,11 +28,11 @@ import lombok.Setter;
 public class CustomerAuthenticationProvider extends AbstractUserDetailsAuthenticationProvider{
 
     private UserPrincipalService userPrincipalService;
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingExecutor passwordHashing;
 
-    public CustomerAuthenticationProvider(UserPrincipalService userPrincipalService, PasswordEncoder passwordEncoder) {
+    public CustomerAuthenticationProvider(UserPrincipalService userPrincipalService, PasswordHashingExecutor passwordHashing) {
         this.userPrincipalService = userPrincipalService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
     }
 
     /**
@@ -75,7 +74,7 @@ public class CustomerAuthenticationProvider extends AbstractUserDetailsAuthentic
 
         // Verify password
         if (userDetails.getPassword() == null ||
-            !passwordEncoder.matches(presentedPassword, userDetails.getPassword())) {
+            !passwordHashing.matchesNow(presentedPassword, userDetails.getPassword())) {
             throw new BadCredentialsException("Invalid email or password");
         }
 
@@ -2,8 +2,9 @@
 package com.example.logintestbackend.security;
 
 import com.example.logintestbackend.entity.User;
-import com.example.logintestbackend.enums.Provider;
-import com.example.logintestbackend.repository.UserRepository;
+import com.example.logintestbackend.service.AuthMetrics;
+import com.example.logintestbackend.service.GoogleAccountService;
+import com.example.logintestbackend.service.LoginAuditLog;
 
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
@@ -15,6 +16,8 @@ import org.springframework.transaction.annotation.Transactional;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
+import static com.example.logintestbackend.service.AuthMetrics.GOOGLE;
+
 
 /**
  * Custom OIDC user service for Google logins.
@@ -24,13 +27,16 @@ import lombok.extern.slf4j.Slf4j;
  *  - Upsert a local {@link User} entity in the database
  *  - Ensure provider is set to GOOGLE
  *  - Return the standard {@link OidcUser} for downstream success handler
+ *  - Record the sign-in in the login audit log
  */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class GoogleOAuth2UserService extends OidcUserService {
 
-    private final UserRepository users;
+    private final GoogleAccountService googleAccounts;
+    private final AuthMetrics metrics;
+    private final LoginAuditLog auditLog;
 
     /**
      * Loads and processes the Google OIDC user.
@@ -40,45 +46,33 @@ public class GoogleOAuth2UserService extends OidcUserService {
      *  2. Extract "sub", "email", and "name"
      *  3. Find existing user in DB by (sub, provider) or fallback to email
      *  4. If not found → create new user
-     *  5. Update fields (provider, sub, name, enabled)
-     *  6. Save & flush user immediately (ensures availability for later)
-     *  7. Return the {@link OidcUser} back to Spring Security
+     *  5. Update fields (provider, sub, name, enabled) only if they differ
+     *     (steps 3-5 are one upsert statement, see {@link GoogleAccountService})
+     *  6. Return the {@link OidcUser} back to Spring Security
      */
     @Override
     @Transactional
     public OidcUser loadUser(OidcUserRequest req) throws OAuth2AuthenticationException {
-        // Step 1: Delegate to default OidcUserService
-        OidcUser user = super.loadUser(req);
-
-        // Step 2: Extract required claims
-        String sub   = user.getSubject();
-        String email = user.getEmail();
-        String name  = user.getFullName() != null ? user.getFullName() : (String) user.getClaims().get("name");
+        return auditLog.track(GOOGLE, req.getIdToken().getEmail(), () -> metrics.flow(GOOGLE, () -> {
+            // Step 1: Delegate to default OidcUserService
+            OidcUser user = metrics.stage(GOOGLE, "fetch_user_info", () -> super.loadUser(req));
 
-        if (sub == null || email == null) {
-            throw new OAuth2AuthenticationException("Missing Google sub/email");
-        }
-        String normalized = email.trim().toLowerCase();
+            // Step 2: Extract required claims
+            String sub   = user.getSubject();
+            String email = user.getEmail();
+            String name  = user.getFullName() != null ? user.getFullName() : (String) user.getClaims().get("name");
 
-        // Step 3: Try to find existing user (first by OAuth ID, then fallback by email)
-        User u = users.findByOauthIdAndProvider(sub, Provider.GOOGLE)
-                      .orElseGet(() -> users.findByEmail(normalized).orElse(null));
+            if (sub == null || email == null) {
+                throw new OAuth2AuthenticationException("Missing Google sub/email");
+            }
+            String normalized = metrics.stage(GOOGLE, "normalise_email", () -> email.trim().toLowerCase());
 
-        // Step 4: Create new user if not found
-        if (u == null) {
-            u = User.createGoogle(normalized, name, sub);
-        } else {
-            // Step 5: Update existing user fields
-            u.setProvider(Provider.GOOGLE);
-            u.setOauthId(sub);
-            if (u.getName() == null) u.setName(name);
-            u.setEnabled(true);
-        }
-        // Step 6: Save user (flush ensures immediate visibility for transaction)
-        users.saveAndFlush(u);
-        log.info("Upserted Google user {}", normalized);
+            // Steps 3-5: Link by OAuth ID, fallback to email, or create; written only if something changed
+            googleAccounts.link(sub, normalized, name);
+            log.debug("Linked Google user {}", normalized);
 
-        // Step 7: Return OidcUser for Spring Security flow
-        return user;
+            // Step 6: Return OidcUser for Spring Security flow
+            return user;
+        }));
     }
 }
@@ -0,0 +1,332 @@
+package com.example.logintestbackend.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+
+import com.example.logintestbackend.enums.Provider;
+
+/**
+ * Specialised HS256 verifier for the exact token layout produced by {@link JwtTokenUtil}.
+ *
+ * Works directly on the chars of the token (or of the whole Authorization header), with
+ * per-thread {@link Mac} instances and reused byte buffers: no String splitting, no JSON
+ * maps, no {@code Date}s. Only the resulting {@link VerifiedToken} and its strings are allocated.
+ *
+ * It is deliberately conservative. Anything outside the layout we issue, such as a
+ * different header, escaped strings, non-ASCII, nested JSON, {@code nbf}, an unexpected
+ * claim type or an odd length, yields {@link #FALLBACK}. The caller then runs the regular
+ * jjwt path, so results are always identical to jjwt's ({@code Hs256FastVerifierTest}
+ * checks every decision against {@link JwtTokenUtil#verifyWithParser}).
+ */
+final class Hs256FastVerifier {
+
+    /** Sentinel: the fast path cannot decide; use the jjwt parser */
+    static final VerifiedToken FALLBACK = new VerifiedToken(null, null, null, null, null, null, null);
+
+    /** base64url({"alg":"HS256"}) — the only header jjwt emits for our HS256 tokens */
+    private static final String HEADER_SEGMENT = "eyJhbGciOiJIUzI1NiJ9";
+
+    private static final int SIGNATURE_CHARS = 43; // 32 bytes, unpadded base64url
+    private static final int MAX_TOKEN_CHARS = 8192;
+
+    private static final byte[] DECODE = new byte[128];
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) DECODE[alphabet.charAt(i)] = (byte) i;
+    }
+
+    // Claim ids for duplicate detection; NBF is recognised only to force a fallback
+    private static final int ISS = 1, SUB = 2, JTI = 4, PROVIDER = 8, UID = 16, IAT = 32, EXP = 64, NBF = 128;
+
+    private static final byte[] PROVIDER_KEY = "provider".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LOCAL = "LOCAL".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GOOGLE = "GOOGLE".getBytes(StandardCharsets.US_ASCII);
+
+    private final Key key;
+    private final String issuer;
+    private final byte[] issuerBytes;
+    private final ThreadLocal<Buffers> buffers;
+
+    Hs256FastVerifier(Key key, String issuer) {
+        this.key = key;
+        this.issuer = issuer;
+        this.issuerBytes = issuer.getBytes(StandardCharsets.UTF_8);
+        this.buffers = ThreadLocal.withInitial(this::newBuffers);
+    }
+
+    /**
+     * Verify the token found in {@code src[start, end)}.
+     *
+     * @return the verified token, null if it is definitely invalid, or {@link #FALLBACK}
+     */
+    VerifiedToken verify(CharSequence src, int start, int end) {
+        int len = end - start;
+        if (len <= HEADER_SEGMENT.length() + SIGNATURE_CHARS + 2 || len > MAX_TOKEN_CHARS) return FALLBACK;
+
+        // Header: must be exactly our fixed segment, compared in place
+        for (int i = 0; i < HEADER_SEGMENT.length(); i++) {
+            if (src.charAt(start + i) != HEADER_SEGMENT.charAt(i)) return FALLBACK;
+        }
+        int dot1 = start + HEADER_SEGMENT.length();
+        if (src.charAt(dot1) != '.') return FALLBACK;
+        int dot2 = end - SIGNATURE_CHARS - 1;
+        if (src.charAt(dot2) != '.') return FALLBACK;
+
+        Buffers b = buffers.get();
+
+        // Signature bytes
+        if (decode(src, dot2 + 1, end, b.signature) != 32) return FALLBACK;
+
+        // Payload bytes
+        int payloadChars = dot2 - dot1 - 1;
+        int payloadLen = decode(src, dot1 + 1, dot2, b.payload(payloadChars));
+        if (payloadLen < 0) return FALLBACK;
+
+        // MAC over "header.payload" copied as ASCII into a reused buffer
+        int inputLen = dot2 - start;
+        byte[] input = b.input(inputLen);
+        for (int i = 0; i < inputLen; i++) input[i] = (byte) src.charAt(start + i);
+        try {
+            b.mac.update(input, 0, inputLen);
+            b.mac.doFinal(b.expected, 0);
+        } catch (ShortBufferException e) {
+            return FALLBACK;
+        }
+        int diff = 0;
+        for (int i = 0; i < 32; i++) diff |= b.expected[i] ^ b.signature[i];
+        if (diff != 0) return null;
+
+        return readClaims(b.payloadBuf, payloadLen);
+    }
+
+    // ---- Claims ----
+
+    private VerifiedToken readClaims(byte[] p, int len) {
+        int seen = 0;
+        int subOff = -1, subLen = 0, jtiOff = -1, jtiLen = 0;
+        boolean issuerOk = false;
+        Provider provider = null;
+        Long uid = null;
+        long iat = -1, exp = -1;
+
+        // jjwt only treats a payload as claims when its first and last bytes are the braces
+        if (len < 2 || p[0] != '{' || p[len - 1] != '}') return FALLBACK;
+        int i = skipWs(p, 1, len);
+        if (i < len && p[i] == '}') return FALLBACK; // empty claims: let jjwt decide
+
+        while (true) {
+            // key
+            if (i >= len || p[i] != '"') return FALLBACK;
+            int kOff = i + 1;
+            int kEnd = endOfString(p, kOff, len);
+            if (kEnd < 0) return FALLBACK;
+            int claim = claimId(p, kOff, kEnd - kOff);
+            if ((seen & claim) != 0) return FALLBACK;
+            seen |= claim;
+
+            i = skipWs(p, kEnd + 1, len);
+            if (i >= len || p[i] != ':') return FALLBACK;
+            i = skipWs(p, i + 1, len);
+            if (i >= len) return FALLBACK;
+
+            // value
+            byte c = p[i];
+            if (c == '"') {
+                int vOff = i + 1;
+                int vEnd = endOfString(p, vOff, len);
+                if (vEnd < 0) return FALLBACK;
+                int vLen = vEnd - vOff;
+                switch (claim) {
+                    case ISS -> issuerOk = equals(p, vOff, vLen, issuerBytes);
+                    case SUB -> { subOff = vOff; subLen = vLen; }
+                    case JTI -> { jtiOff = vOff; jtiLen = vLen; }
+                    case PROVIDER -> provider = providerOf(p, vOff, vLen);
+                    case 0 -> { } // unknown claim, ignored like jjwt does
+                    default -> { return FALLBACK; } // uid/iat/exp as strings
+                }
+                i = vEnd + 1;
+            } else if (c >= '0' && c <= '9') {
+                int nEnd = i;
+                long v = 0;
+                while (nEnd < len && p[nEnd] >= '0' && p[nEnd] <= '9') {
+                    if (nEnd - i >= 15) return FALLBACK;
+                    v = v * 10 + (p[nEnd] - '0');
+                    nEnd++;
+                }
+                if (p[i] == '0' && nEnd - i > 1) return FALLBACK; // leading zero
+                if (nEnd < len && (p[nEnd] == '.' || p[nEnd] == 'e' || p[nEnd] == 'E')) return FALLBACK;
+                switch (claim) {
+                    case UID -> uid = v;
+                    case IAT -> iat = v;
+                    case EXP -> exp = v;
+                    case 0 -> { }
+                    default -> { return FALLBACK; } // iss/sub/jti/provider as numbers
+                }
+                i = nEnd;
+            } else {
+                // booleans, null, negatives, objects, arrays: not part of our layout
+                return FALLBACK;
+            }
+
+            i = skipWs(p, i, len);
+            if (i >= len) return FALLBACK;
+            if (p[i] == ',') {
+                i = skipWs(p, i + 1, len);
+                continue;
+            }
+            if (p[i] == '}') {
+                if (i + 1 != len) return FALLBACK;
+                break;
+            }
+            return FALLBACK;
+        }
+
+        // Same acceptance rule as JwtTokenUtil: exp present and in the future, issuer matches
+        if (exp < 0 || exp * 1000 <= System.currentTimeMillis() || !issuerOk) return null;
+
+        return new VerifiedToken(
+                jtiOff < 0 ? null : new String(p, jtiOff, jtiLen, StandardCharsets.US_ASCII),
+                subOff < 0 ? null : new String(p, subOff, subLen, StandardCharsets.US_ASCII),
+                uid,
+                provider,
+                iat < 0 ? null : Instant.ofEpochSecond(iat),
+                Instant.ofEpochSecond(exp),
+                issuer
+        );
+    }
+
+    private static int claimId(byte[] p, int off, int len) {
+        if (len == 3) {
+            if (p[off] == 'i' && p[off + 1] == 's' && p[off + 2] == 's') return ISS;
+            if (p[off] == 's' && p[off + 1] == 'u' && p[off + 2] == 'b') return SUB;
+            if (p[off] == 'j' && p[off + 1] == 't' && p[off + 2] == 'i') return JTI;
+            if (p[off] == 'u' && p[off + 1] == 'i' && p[off + 2] == 'd') return UID;
+            if (p[off] == 'i' && p[off + 1] == 'a' && p[off + 2] == 't') return IAT;
+            if (p[off] == 'e' && p[off + 1] == 'x' && p[off + 2] == 'p') return EXP;
+            if (p[off] == 'n' && p[off + 1] == 'b' && p[off + 2] == 'f') return NBF;
+        }
+        if (len == 8 && equals(p, off, len, PROVIDER_KEY)) return PROVIDER;
+        return 0;
+    }
+
+    private static Provider providerOf(byte[] p, int off, int len) {
+        if (equals(p, off, len, LOCAL)) return Provider.LOCAL;
+        if (equals(p, off, len, GOOGLE)) return Provider.GOOGLE;
+        return null;
+    }
+
+    /**
+     * @return index of the closing quote, or -1 if the string has escapes or non-ASCII bytes
+     */
+    private static int endOfString(byte[] p, int off, int len) {
+        for (int i = off; i < len; i++) {
+            byte c = p[i];
+            if (c == '"') return i;
+            if (c == '\\' || c < 0x20) return -1; // negative = non-ASCII
+        }
+        return -1;
+    }
+
+    private static int skipWs(byte[] p, int i, int len) {
+        while (i < len && (p[i] == ' ' || p[i] == '\t' || p[i] == '\n' || p[i] == '\r')) i++;
+        return i;
+    }
+
+    private static boolean equals(byte[] p, int off, int len, byte[] expected) {
+        if (len != expected.length) return false;
+        for (int i = 0; i < len; i++) {
+            if (p[off + i] != expected[i]) return false;
+        }
+        return true;
+    }
+
+    // ---- Base64url ----
+
+    /**
+     * Decode unpadded base64url from {@code src[from, to)} into {@code out}.
+     *
+     * @return number of bytes written, or -1 on any non-canonical input
+     */
+    private static int decode(CharSequence src, int from, int to, byte[] out) {
+        int n = to - from;
+        int rem = n & 3;
+        if (rem == 1) return -1;
+        int outLen = (n >> 2) * 3 + (rem == 0 ? 0 : rem - 1);
+        if (outLen > out.length) return -1;
+
+        int o = 0, i = from;
+        int fullEnd = from + (n - rem);
+        while (i < fullEnd) {
+            int a = sextet(src.charAt(i)), b = sextet(src.charAt(i + 1));
+            int c = sextet(src.charAt(i + 2)), d = sextet(src.charAt(i + 3));
+            if ((a | b | c | d) < 0) return -1;
+            int v = a << 18 | b << 12 | c << 6 | d;
+            out[o++] = (byte) (v >> 16);
+            out[o++] = (byte) (v >> 8);
+            out[o++] = (byte) v;
+            i += 4;
+        }
+        if (rem == 2) {
+            int a = sextet(src.charAt(i)), b = sextet(src.charAt(i + 1));
+            if ((a | b) < 0 || (b & 0xF) != 0) return -1; // unused low bits must be zero
+            out[o++] = (byte) (a << 2 | b >> 4);
+        } else if (rem == 3) {
+            int a = sextet(src.charAt(i)), b = sextet(src.charAt(i + 1)), c = sextet(src.charAt(i + 2));
+            if ((a | b | c) < 0 || (c & 0x3) != 0) return -1;
+            int v = a << 12 | b << 6 | c;
+            out[o++] = (byte) (v >> 10);
+            out[o++] = (byte) (v >> 2);
+        }
+        return o;
+    }
+
+    /**
+     * @return the 6-bit value, or -1 for characters outside the base64url alphabet
+     */
+    private static int sextet(char c) {
+        return c < 128 ? DECODE[c] : -1;
+    }
+
+    // ---- Per-thread state ----
+
+    private Buffers newBuffers() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return new Buffers(mac);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static final class Buffers {
+        final Mac mac;
+        final byte[] signature = new byte[32];
+        final byte[] expected = new byte[32];
+        byte[] payloadBuf = new byte[512];
+        byte[] inputBuf = new byte[1024];
+
+        Buffers(Mac mac) {
+            this.mac = mac;
+        }
+
+        byte[] payload(int chars) {
+            int need = chars / 4 * 3 + 3;
+            if (payloadBuf.length < need) payloadBuf = new byte[need];
+            return payloadBuf;
+        }
+
+        byte[] input(int len) {
+            if (inputBuf.length < len) inputBuf = new byte[len];
+            return inputBuf;
+        }
+    }
+}
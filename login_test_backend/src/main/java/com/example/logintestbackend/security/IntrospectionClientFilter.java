@@ -0,0 +1,128 @@
+package com.example.logintestbackend.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Guards {@code POST /api/auth/introspect}, which only API gateways may call.
+ *
+ * Responsibilities:
+ * - Authenticate the caller with HTTP Basic against {@code app.jwt.introspection.clients}
+ *   (constant-time secret comparison) and grant {@link #ROLE}; anything else gets 401
+ *   before the body is read.
+ * - Cap the body at {@code max-body-bytes} (413), so a batch is never deserialised beyond
+ *   what {@code max-batch} could need; the capped body is replayed to the controller.
+ */
+@Component
+public class IntrospectionClientFilter extends OncePerRequestFilter {
+
+    public static final String ROLE = "GATEWAY";
+
+    private static final String PATH = "/api/auth/introspect";
+    private static final String BASIC = "Basic ";
+
+    private final ObjectMapper objectMapper;
+    private final JwtPropertiesConfig.Introspection cfg;
+
+    public IntrospectionClientFilter(ObjectMapper objectMapper, JwtPropertiesConfig jwtPropertiesConfig) {
+        this.objectMapper = objectMapper;
+        this.cfg = jwtPropertiesConfig.getIntrospection();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !PATH.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        // 1. Gateway credentials, before any body is read
+        String clientId = authenticate(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (clientId == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"introspection\"");
+            writeError(response, HttpStatus.UNAUTHORIZED, "Gateway credentials required");
+            return;
+        }
+
+        // 2. Bounded body
+        if (request.getContentLengthLong() > cfg.getMaxBodyBytes()) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(cfg.getMaxBodyBytes() + 1);
+        if (body.length > cfg.getMaxBodyBytes()) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+            return;
+        }
+
+        // 3. Authenticated gateway; the authorization rules require its role on this path
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                clientId, null, List.of(new SimpleGrantedAuthority("ROLE_" + ROLE))));
+        filterChain.doFilter(new BufferedBodyRequest(request, body), response);
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * @return the client id if the Basic credentials match a configured gateway, else null
+     */
+    private String authenticate(String header) {
+        if (header == null || !header.regionMatches(true, 0, BASIC, 0, BASIC.length())) return null;
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(header.substring(BASIC.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 0) return null;
+        String id = decoded.substring(0, colon);
+        byte[] secret = decoded.substring(colon + 1).getBytes(StandardCharsets.UTF_8);
+
+        for (JwtPropertiesConfig.Introspection.Client client : cfg.getClients()) {
+            // A client without a secret (e.g. the unset default) can never authenticate
+            if (client.getSecret() == null || client.getSecret().isBlank()) continue;
+            if (id.equals(client.getId())
+                    && MessageDigest.isEqual(client.getSecret().getBytes(StandardCharsets.UTF_8), secret)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "timestamp", Instant.now().toString(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", message
+        ));
+    }
+}
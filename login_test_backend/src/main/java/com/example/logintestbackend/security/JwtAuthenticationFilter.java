@@ -1,6 +1,7 @@
 package com.example.logintestbackend.security;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -10,6 +11,7 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.example.logintestbackend.config.JwtPropertiesConfig;
 import com.example.logintestbackend.service.UserPrincipalService;
 
 import jakarta.servlet.FilterChain;
@@ -28,9 +30,13 @@ import lombok.extern.slf4j.Slf4j;
  * and is responsible for:
  * <ul>
  *   <li>Extracting the JWT from the "Authorization" header</li>
- *   <li>Validating the JWT via {@link JwtTokenUtil}</li>
- *   <li>Loading the user details from DB ({@link UserPrincipalService})</li>
- *   <li>Building an {@link UsernamePasswordAuthenticationToken} if valid</li>
+ *   <li>Verifying the JWT once via {@link JwtTokenUtil#verify(String)}</li>
+ *   <li>Rejecting tokens issued before the user's security epoch ({@link UserSecurityEpochs})
+ *       or revoked individually ({@link TokenRevocationService})</li>
+ *   <li>Loading the user details from DB ({@link UserPrincipalService}), or, when
+ *       {@code app.jwt.stateless-principal} is on, building them from the token claims</li>
+ *   <li>Building an {@link UsernamePasswordAuthenticationToken} if valid,
+ *       carrying the {@link VerifiedToken} as its credentials</li>
  *   <li>Setting authentication in the {@link SecurityContextHolder}</li>
  * </ul>
  *
@@ -43,6 +49,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter{
     
     private final JwtTokenUtil jwtToken;
     private final UserPrincipalService userPrincipalService;
+    private final UserSecurityEpochs securityEpochs;
+    private final TokenRevocationService revocations;
+    private final JwtPropertiesConfig jwtPropertiesConfig;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -57,25 +66,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter{
             return;
         }
 
-        // 2. Extract the token (remove "Bearer " prefix)
-        final String jwt = authHeader.substring(7);
-
         try {
-            // 3. Extract email (subject) from token
-            final String email = jwtToken.extractEmail(jwt);
+            // 2-3. Verify the token after the "Bearer " prefix once (signature, expiry, issuer)
+            final VerifiedToken verified = jwtToken.verifyBearer(authHeader).orElse(null);
 
-            // 4. Authenticate only if email is present and not already authenticated
-            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Load user from DB
-                UserDetails userDetails = userPrincipalService.loadUserByUsername(email);
+            // 4. Authenticate only if the token is valid and not already authenticated
+            if (verified != null && verified.subject() != null
+                    && SecurityContextHolder.getContext().getAuthentication() == null
+                    && !securityEpochs.isRevoked(verified)
+                    && !revocations.isRevoked(verified)) {
+                // Stateless: trust the verified claims; otherwise load user from DB
+                UserDetails userDetails = jwtPropertiesConfig.isStatelessPrincipal()
+                        ? principalFromClaims(verified)
+                        : userPrincipalService.loadUserByUsername(verified.subject());
 
-                // 5. Validate the token against user details
-                if (jwtToken.validateToken(jwt, userDetails)) {
-                    // Create authentication object
+                // 5. Make sure the token belongs to the loaded user
+                if (verified.isFor(userDetails)) {
+                    // Create authentication object; the verified token travels as credentials
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(
                                     userDetails,
-                                    null,
+                                    verified,
                                     userDetails.getAuthorities()
                             );
 
@@ -85,6 +96,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter{
                     // 6. Set authentication in SecurityContext
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
+            } else if (verified == null) {
+                log.debug("JWT rejected: invalid signature, expired or wrong issuer");
             }
         } catch (Exception ex) {
             // Log and allow request to continue unauthenticated
@@ -94,4 +107,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter{
         // 7. Continue filter chain
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Build a {@link UserDetails} purely from verified token claims (no DB access).
+     * No password is held; the account is enabled because revocation is handled by epochs.
+     */
+    private static UserDetails principalFromClaims(VerifiedToken verified) {
+        return org.springframework.security.core.userdetails.User
+                .withUsername(verified.subject())
+                .password("")
+                .authorities(List.of())
+                .build();
+    }
+}
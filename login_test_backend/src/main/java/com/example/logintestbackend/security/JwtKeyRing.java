@@ -0,0 +1,301 @@
+package com.example.logintestbackend.security;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rotating set of ES256 key pairs used when {@code app.jwt.algorithm=ES256}, shared by every
+ * instance through the {@code jwt_signing_keys} table.
+ *
+ * Responsibilities:
+ * - Sign with the key whose {@code activates_at} is the latest one in the past, and publish
+ *   the "next" key in the JWKS at least {@code jwks-max-age} before it activates, so
+ *   downstream caches learn it before it signs anything.
+ * - Keep retired keys available for verification until every token they signed has expired,
+ *   then delete them.
+ * - Reload the ring every {@code refresh-interval}. Whichever instance first sees that a next
+ *   key is missing (or a key has expired) creates or prunes it under a Postgres advisory lock,
+ *   so every instance signs with, verifies against and publishes the same keys.
+ * - Render the public keys as a JWK Set for {@code /.well-known/jwks.json}.
+ *
+ * State is an immutable {@link Snapshot} swapped atomically on reload, so lookups on the
+ * request path never lock. Private keys are stored unencrypted: restrict access to the table.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing {
+
+    private static final int KID_BYTES = 12;
+
+    /** Advisory lock id serialising key creation and pruning across instances */
+    private static final long ROTATION_LOCK = 0x6a77745f6b657973L;
+
+    private static final Snapshot EMPTY = new Snapshot(List.of(), Map.of(), Map.of("keys", List.of()));
+
+    private final JwtPropertiesConfig jwtPropertiesConfig;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    public JwtKeyRing(JwtPropertiesConfig jwtPropertiesConfig,
+                      JdbcTemplate jdbc,
+                      PlatformTransactionManager txManager) {
+        this.jwtPropertiesConfig = jwtPropertiesConfig;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.enabled = jwtPropertiesConfig.getAlgorithm() == SignatureAlgorithm.ES256;
+    }
+
+    /**
+     * Load (creating if needed) the shared ring; fails startup if it cannot be read.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        refresh();
+        log.info("Loaded JWT key ring: signing with kid={}, {} key(s) published",
+                current().kid(), snapshot.keys().size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the key to sign new tokens with
+     */
+    public SigningKey current() {
+        if (!enabled) throw new IllegalStateException("Key ring is only used with app.jwt.algorithm=ES256");
+        Instant now = Instant.now();
+        SigningKey current = null;
+        for (SigningKey k : snapshot.keys()) {
+            if (k.activatesAt().isAfter(now)) break;
+            current = k;
+        }
+        if (current == null) throw new IllegalStateException("No active JWT signing key");
+        return current;
+    }
+
+    /**
+     * Look up a verification key by {@code kid}.
+     *
+     * @return the public key, or null if the kid is unknown or already pruned
+     */
+    public PublicKey verificationKey(String kid) {
+        if (kid == null) return null;
+        SigningKey key = snapshot.byKid().get(kid);
+        return key == null ? null : key.keyPair().getPublic();
+    }
+
+    /**
+     * @return the published JWK Set ({@code {"keys":[...]}}), rebuilt only on reload
+     */
+    public Map<String, Object> jwks() {
+        return snapshot.jwks();
+    }
+
+    /**
+     * Reload the shared ring, keeping the previous snapshot if the database is unavailable.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.keys.refresh-interval:PT1M}",
+               initialDelayString = "${app.jwt.keys.refresh-interval:PT1M}")
+    public void scheduledRefresh() {
+        if (!enabled) return;
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("JWT key ring reload failed, keeping {} loaded key(s): {}", snapshot.keys().size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure the stored ring has a current and a next key, delete expired keys, and
+     * load the result.
+     */
+    public synchronized void refresh() {
+        List<SigningKey> keys = tx.execute(status -> {
+            Instant now = Instant.now();
+            List<SigningKey> stored = load();
+            if (!needsMaintenance(stored, now)) return stored;
+
+            // Another instance may be doing the same: take the lock, then look again
+            jdbc.query("select pg_advisory_xact_lock(?)", rs -> null, ROTATION_LOCK);
+            stored = load();
+            return needsMaintenance(stored, now) ? maintain(stored, now) : stored;
+        });
+
+        Snapshot previous = snapshot;
+        snapshot = buildSnapshot(keys);
+        if (!previous.byKid().isEmpty() && !previous.byKid().keySet().equals(snapshot.byKid().keySet())) {
+            log.info("JWT key ring changed: {} key(s) published", keys.size());
+        }
+    }
+
+    // ---- Internal Methods ----
+
+    /** Tokens signed by a retired key stay valid for the TTL (+ parser clock skew) */
+    private Duration retention() {
+        return Duration.ofMinutes(jwtPropertiesConfig.getAccessTokenTtlMins()).plusSeconds(60);
+    }
+
+    private boolean needsMaintenance(List<SigningKey> keys, Instant now) {
+        int current = currentIndex(keys, now);
+        if (current < 0 || current == keys.size() - 1) return true; // no current or no next key
+        return current > 0 && keys.get(1).activatesAt().plus(retention()).isBefore(now);
+    }
+
+    /**
+     * Create the missing current/next keys and delete keys whose tokens have all expired.
+     */
+    private List<SigningKey> maintain(List<SigningKey> keys, Instant now) {
+        List<SigningKey> ring = new ArrayList<>(keys);
+        Duration interval = jwtPropertiesConfig.getKeys().getRotationInterval();
+        Duration publishLead = jwtPropertiesConfig.getKeys().getJwksMaxAge();
+
+        // 1. A key to sign with now (first start only)
+        if (currentIndex(ring, now) < 0) {
+            ring.add(0, insert(generate(now)));
+            log.info("Created initial JWT signing key kid={}", ring.get(0).kid());
+        }
+
+        // 2. The next key, published at least one JWKS cache lifetime before it signs
+        if (currentIndex(ring, now) == ring.size() - 1) {
+            SigningKey current = ring.get(ring.size() - 1);
+            Instant scheduled = current.activatesAt().plus(interval);
+            Instant earliest = now.plus(publishLead);
+            SigningKey next = insert(generate(scheduled.isBefore(earliest) ? earliest : scheduled));
+            ring.add(next);
+            log.info("Created next JWT signing key kid={}, signing from {}", next.kid(), next.activatesAt());
+        }
+
+        // 3. Retired keys whose successor took over longer ago than a token lives
+        while (currentIndex(ring, now) > 0 && ring.get(1).activatesAt().plus(retention()).isBefore(now)) {
+            SigningKey expired = ring.remove(0);
+            jdbc.update("delete from jwt_signing_keys where kid = ?", expired.kid());
+            log.info("Deleted expired JWT signing key kid={}", expired.kid());
+        }
+        return ring;
+    }
+
+    /**
+     * @return index of the latest key activated by {@code now}, or -1
+     */
+    private static int currentIndex(List<SigningKey> keys, Instant now) {
+        int current = -1;
+        for (int i = 0; i < keys.size() && !keys.get(i).activatesAt().isAfter(now); i++) current = i;
+        return current;
+    }
+
+    private List<SigningKey> load() {
+        return jdbc.query("select kid, private_key, public_key, activates_at from jwt_signing_keys order by activates_at",
+                (rs, i) -> new SigningKey(rs.getString(1),
+                        decode(rs.getBytes(2), rs.getBytes(3)),
+                        rs.getTimestamp(4).toInstant()));
+    }
+
+    private SigningKey insert(SigningKey key) {
+        jdbc.update("insert into jwt_signing_keys (kid, private_key, public_key, activates_at) values (?, ?, ?, ?)",
+                key.kid(), key.keyPair().getPrivate().getEncoded(), key.keyPair().getPublic().getEncoded(),
+                Timestamp.from(key.activatesAt()));
+        return key;
+    }
+
+    private Snapshot buildSnapshot(List<SigningKey> keys) {
+        Map<String, SigningKey> byKid = new LinkedHashMap<>();
+        keys.forEach(k -> byKid.put(k.kid(), k));
+
+        List<Map<String, Object>> jwks = new ArrayList<>(keys.size());
+        keys.forEach(k -> jwks.add(toJwk(k)));
+        return new Snapshot(List.copyOf(keys), Map.copyOf(byKid), Map.of("keys", List.copyOf(jwks)));
+    }
+
+    private SigningKey generate(Instant activatesAt) {
+        try {
+            KeyPairGenerator gen = KeyPairGenerator.getInstance("EC");
+            gen.initialize(new ECGenParameterSpec("secp256r1"), random);
+            byte[] kid = new byte[KID_BYTES];
+            random.nextBytes(kid);
+            return new SigningKey(Base64.getUrlEncoder().withoutPadding().encodeToString(kid),
+                    gen.generateKeyPair(), activatesAt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("EC P-256 key generation not available", e);
+        }
+    }
+
+    private static KeyPair decode(byte[] privateKey, byte[] publicKey) {
+        try {
+            KeyFactory factory = KeyFactory.getInstance("EC");
+            return new KeyPair(factory.generatePublic(new X509EncodedKeySpec(publicKey)),
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(privateKey)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Stored JWT signing key cannot be decoded", e);
+        }
+    }
+
+    /**
+     * Render a public key as an RFC 7517 JWK (EC, P-256).
+     */
+    private static Map<String, Object> toJwk(SigningKey key) {
+        ECPublicKey pub = (ECPublicKey) key.keyPair().getPublic();
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", key.kid());
+        jwk.put("use", "sig");
+        jwk.put("alg", SignatureAlgorithm.ES256.getValue());
+        jwk.put("x", coordinate(pub.getW().getAffineX()));
+        jwk.put("y", coordinate(pub.getW().getAffineY()));
+        return jwk;
+    }
+
+    /**
+     * Base64url of an EC coordinate as a fixed 32-byte unsigned big-endian value.
+     */
+    private static String coordinate(BigInteger value) {
+        byte[] raw = value.toByteArray();
+        byte[] out = new byte[32];
+        int copy = Math.min(raw.length, 32);
+        System.arraycopy(raw, raw.length - copy, out, 32 - copy, copy);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+    }
+
+    /**
+     * A key pair with its identifier and the moment it starts signing.
+     */
+    public record SigningKey(String kid, KeyPair keyPair, Instant activatesAt) {}
+
+    /** Keys ordered by activation (retired, current, next) */
+    private record Snapshot(List<SigningKey> keys, Map<String, SigningKey> byKid, Map<String, Object> jwks) {}
+}
@@ -4,17 +4,21 @@ import com.example.logintestbackend.config.JwtPropertiesConfig;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
-import lombok.*;
+import com.example.logintestbackend.enums.Provider;
 
 /**
  * Utility class for generating, parsing, and validating JSON Web Tokens (JWT).
@@ -25,16 +29,61 @@ import lombok.*;
  * - Validate tokens (signature, expiration, issuer).
  * - Provide integration with Spring Security's {@link UserDetails}.
  *
- * Configuration values (issuer, secret, token TTL) are injected from {@link JwtPropertiesConfig}.
+ * Configuration values (algorithm, issuer, secret, token TTL) are injected from {@link JwtPropertiesConfig}.
+ * The signing key and the parser are built once at startup and shared by all requests.
+ *
+ * Two signing modes are supported:
+ * - HS256 with the shared {@code app.jwt.secret} (default).
+ * - ES256 with rotating keys from {@link JwtKeyRing}; tokens carry a {@code kid} header and
+ *   other services can verify them locally against {@code /.well-known/jwks.json}.
  */
 @Component
-@RequiredArgsConstructor
 public class JwtTokenUtil {
 
     private final JwtPropertiesConfig jwtPropertiesConfig;
+    private final VerifiedTokenCache tokenCache;
+    private final JwtKeyRing keyRing;
+    private final SignatureAlgorithm algorithm;
+    private final Key signingKey; // HS256 only
+    private final JwtParser parser;
+    private final Hs256FastVerifier fastVerifier; // HS256 + app.jwt.fast-path only
+
+    public JwtTokenUtil(JwtPropertiesConfig jwtPropertiesConfig, VerifiedTokenCache tokenCache, JwtKeyRing keyRing) {
+        this.jwtPropertiesConfig = jwtPropertiesConfig;
+        this.tokenCache = tokenCache;
+        this.keyRing = keyRing;
+        this.algorithm = jwtPropertiesConfig.getAlgorithm();
+
+        JwtParserBuilder builder = Jwts.parserBuilder()
+                .setAllowedClockSkewSeconds(60); // tolerate small skew
+        if (algorithm == SignatureAlgorithm.HS256) {
+            this.signingKey = signingKey(jwtPropertiesConfig.getSecret());
+            builder.setSigningKey(signingKey);
+            this.fastVerifier = jwtPropertiesConfig.isFastPath()
+                    ? new Hs256FastVerifier(signingKey, jwtPropertiesConfig.getIssuer())
+                    : null;
+        } else if (algorithm == SignatureAlgorithm.ES256) {
+            this.signingKey = null;
+            this.fastVerifier = null;
+            builder.setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                // jjwt 0.11 declares this parameter as a raw JwsHeader; JwsHeader<?> does not override it
+                @Override
+                @SuppressWarnings("rawtypes")
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    Key key = keyRing.verificationKey(header.getKeyId());
+                    if (key == null) throw new SignatureException("Unknown or retired key id");
+                    return key;
+                }
+            });
+        } else {
+            throw new IllegalStateException("app.jwt.algorithm must be HS256 or ES256");
+        }
+        this.parser = builder.build();
+    }
 
     /**
      * Generate a signed JWT with the given subject (usually the user email) and custom claims.
+     * Every token gets a random {@code jti} so it can be revoked individually.
      *
      * @param subject the JWT subject (e.g., email/username)
      * @param claims  additional claims to embed in the payload
@@ -45,14 +94,96 @@ public class JwtTokenUtil {
         Date now = new Date(nowMs);
         Date exp = new Date(nowMs + jwtPropertiesConfig.getAccessTokenTtlMins() * 60_000);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setIssuer(jwtPropertiesConfig.getIssuer())
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .addClaims(claims)
                 .setIssuedAt(now)
-                .setExpiration(exp)
-                .signWith(signingKey(), SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(exp);
+
+        if (algorithm == SignatureAlgorithm.ES256) {
+            JwtKeyRing.SigningKey key = keyRing.current();
+            return builder
+                    .setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                    .signWith(key.keyPair().getPrivate(), SignatureAlgorithm.ES256)
+                    .compact();
+        }
+        return builder.signWith(signingKey, SignatureAlgorithm.HS256).compact();
+    }
+
+    /**
+     * Parse and verify a token exactly once: signature, expiration and issuer.
+     * This is the single entry point used on the request path.
+     * When the {@link VerifiedTokenCache} is enabled, repeat tokens skip the signature check.
+     *
+     * @param token JWT token
+     * @return the verified token, or empty if the token is invalid
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isEmpty()) return Optional.empty();
+        VerifiedToken verified = tokenCache.isEnabled()
+                ? tokenCache.getOrVerify(token, this::verifySignature)
+                : verifySignature(token);
+        return Optional.ofNullable(verified);
+    }
+
+    /**
+     * Verify the token carried in an {@code Authorization: Bearer <token>} header.
+     * With the HS256 fast path and no cache, the token is verified in place without
+     * extracting a substring.
+     *
+     * @param authHeader full header value, already known to start with "Bearer "
+     * @return the verified token, or empty if the token is invalid
+     */
+    public Optional<VerifiedToken> verifyBearer(String authHeader) {
+        if (fastVerifier != null && !tokenCache.isEnabled()) {
+            VerifiedToken fast = fastVerifier.verify(authHeader, 7, authHeader.length());
+            if (fast != Hs256FastVerifier.FALLBACK) return Optional.ofNullable(fast);
+        }
+        return verify(authHeader.substring(7));
+    }
+
+    /**
+     * Full signature/expiry/issuer check, bypassing the cache.
+     * Tries the HS256 fast path first and uses the jjwt parser when it cannot decide.
+     *
+     * @return the verified token, or null if invalid
+     */
+    private VerifiedToken verifySignature(String token) {
+        if (fastVerifier != null) {
+            VerifiedToken fast = fastVerifier.verify(token, 0, token.length());
+            if (fast != Hs256FastVerifier.FALLBACK) return fast;
+        }
+        return verifyWithParser(token);
+    }
+
+    /**
+     * Full jjwt parse + signature/expiry/issuer check.
+     *
+     * @return the verified token, or null if invalid
+     */
+    VerifiedToken verifyWithParser(String token) {
+        try {
+            Claims c = parseClaims(token).getBody();
+            Date exp = c.getExpiration();
+            Instant now = Instant.now();
+            if (exp == null || !exp.toInstant().isAfter(now)
+                    || !jwtPropertiesConfig.getIssuer().equals(c.getIssuer())) {
+                return null;
+            }
+            return new VerifiedToken(
+                    c.getId(),
+                    c.getSubject(),
+                    c.get("uid", Long.class),
+                    providerOf(c.get("provider", String.class)),
+                    c.getIssuedAt() == null ? null : c.getIssuedAt().toInstant(),
+                    exp.toInstant(),
+                    c.getIssuer()
+            );
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -71,9 +202,7 @@ public class JwtTokenUtil {
      * @return true if valid, false otherwise
      */
     public boolean validateToken(String token, UserDetails userDetails) {
-        if (!validateToken(token)) return false;
-        String subject = extractSubject(token);
-        return subject != null && subject.equalsIgnoreCase(userDetails.getUsername());
+        return verify(token).map(v -> v.isFor(userDetails)).orElse(false);
     }
 
     // ---- Core Helpers ----
@@ -85,15 +214,7 @@ public class JwtTokenUtil {
      * @return true if token is valid, false otherwise
      */
     public boolean validateToken(String token) {
-        try {
-            Jws<Claims> jws = parseClaims(token);
-            Claims c = jws.getBody();
-            return c.getExpiration() != null
-                    && c.getExpiration().after(new Date())
-                    && jwtPropertiesConfig.getIssuer().equals(c.getIssuer());
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 
    /**
@@ -109,11 +230,19 @@ public class JwtTokenUtil {
      * Parse token and return claims (throws if invalid).
      */
     private Jws<Claims> parseClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey())
-                .setAllowedClockSkewSeconds(60) // tolerate small skew
-                .build()
-                .parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
+    }
+
+    /**
+     * Map the "provider" claim back to {@link Provider}; null if missing or unknown.
+     */
+    private static Provider providerOf(String claim) {
+        if (claim == null) return null;
+        try {
+            return Provider.valueOf(claim);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -121,14 +250,17 @@ public class JwtTokenUtil {
      * Supports both Base64-encoded and raw string secrets.
      * Must be at least 32 bytes for HS256.
      */
-    private Key signingKey() {
+    private static Key signingKey(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.jwt.secret must be set");
+        }
         // Support Base64 or raw string secrets; ensure ≥ 32 bytes for HS256
         byte[] keyBytes;
         try {
-            keyBytes = Base64.getDecoder().decode(jwtPropertiesConfig.getSecret());
+            keyBytes = Base64.getDecoder().decode(secret);
             if (keyBytes.length < 32) throw new IllegalArgumentException("decoded key too short");
         } catch (Exception ignore) {
-            keyBytes = jwtPropertiesConfig.getSecret().getBytes(StandardCharsets.UTF_8);
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         }
         if (keyBytes.length < 32) {
             throw new IllegalStateException("app.jwt.secret must be at least 32 bytes for HS256");
@@ -0,0 +1,91 @@
+package com.example.logintestbackend.security;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Applies {@link LoginRateLimiter} to {@code POST /api/auth} (login) and
+ * {@code POST /api/auth/users} (register) before the request reaches the controller.
+ *
+ * The email is read from the JSON body, which is buffered (up to {@link #MAX_BODY_BYTES})
+ * and replayed to the controller; larger bodies get 413. Rejected attempts get 429 with
+ * {@code Retry-After} and never reach the database or the password encoder.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final LoginRateLimiter limiter;
+    private final ClientIpResolver clientIps;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) return true;
+        String path = request.getServletPath();
+        return !"/api/auth".equals(path) && !"/api/auth/users".equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        // 1. Buffer the body so the email can be read here and again by the controller
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+            return;
+        }
+
+        // 2. Check IP (behind trusted proxies: the forwarded client), email and global buckets
+        LoginRateLimiter.Decision decision = limiter.tryAcquire(clientIps.resolve(request), emailOf(body));
+        if (!decision.allowed()) {
+            long retryAfter = Math.max(1, (decision.retryAfter().toMillis() + 999) / 1000);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+            writeError(response, HttpStatus.TOO_MANY_REQUESTS, "Too many attempts, please retry later");
+            return;
+        }
+
+        // 3. Continue with the buffered body
+        filterChain.doFilter(new BufferedBodyRequest(request, body), response);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "timestamp", Instant.now().toString(),
+                "status", status.value(),
+                "error", status.getReasonPhrase(),
+                "message", message
+        ));
+    }
+
+    private String emailOf(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).path("email");
+            return email.isTextual() ? email.asText().trim().toLowerCase() : null;
+        } catch (IOException | RuntimeException e) {
+            return null; // malformed JSON is rejected by the controller; IP/global limits still apply
+        }
+    }
+}
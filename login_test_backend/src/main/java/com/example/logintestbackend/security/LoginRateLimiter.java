@@ -0,0 +1,254 @@
+package com.example.logintestbackend.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token-bucket limits for login and registration attempts: per client IP, per normalised
+ * email and per instance.
+ *
+ * Responsibilities:
+ * - Keep each bucket as a single {@link AtomicLong} using GCRA (the "virtual scheduling" form
+ *   of a token bucket): an attempt is one CAS, no locks and no background refill.
+ * - Check every limit before consuming from any, so an attempt rejected by one limit does
+ *   not use up the others (and creates no bucket).
+ * - Bound memory to {@code max-tracked-keys} buckets. When the table is full, a new key
+ *   evicts the most idle of a few sampled buckets (constant work on the request thread);
+ *   fully refilled buckets carry no state and are pruned by the scheduler.
+ * - Optionally enforce the per-IP / per-email limits cluster-wide with Redis fixed-window
+ *   counters, checked and counted together in one script once the local checks pass.
+ *   Redis errors fail open; the local limits still apply.
+ */
+@Slf4j
+@Component
+public class LoginRateLimiter {
+
+    /**
+     * For each KEYS[i] (window counter) with ARGV[2i-1] = window ms and ARGV[2i] = capacity:
+     * return i for the first counter already at capacity, else INCR all (PEXPIRE on first
+     * hit) and return 0.
+     */
+    private static final RedisScript<Long> WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "for i, key in ipairs(KEYS) do " +
+            "  if tonumber(redis.call('GET', key) or '0') >= tonumber(ARGV[2 * i]) then return i end " +
+            "end " +
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('INCR', key) == 1 then redis.call('PEXPIRE', key, ARGV[2 * i - 1]) end " +
+            "end " +
+            "return 0", Long.class);
+
+    private static final String REDIS_KEY_PREFIX = "ratelimit:";
+
+    /** Buckets inspected to pick an eviction victim when the table is full */
+    private static final int EVICTION_SAMPLE = 8;
+
+    /**
+     * Result of an admission check.
+     *
+     * @param allowed    true if the attempt may proceed
+     * @param scope      limit that rejected it ({@code ip}, {@code email}, {@code global}), null if allowed
+     * @param retryAfter how long until an attempt would be allowed again
+     */
+    public record Decision(boolean allowed, String scope, Duration retryAfter) {
+        static final Decision ALLOWED = new Decision(true, null, Duration.ZERO);
+    }
+
+    private final AuthPropertiesConfig.RateLimit cfg;
+    private final ObjectProvider<StringRedisTemplate> redisProvider;
+
+    private final Gcra perIp;
+    private final Gcra perEmail;
+    private final Gcra global;
+
+    private final ConcurrentHashMap<String, AtomicLong> ipBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> emailBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong globalBucket = new AtomicLong(System.nanoTime());
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Counter> rejected = new ConcurrentHashMap<>();
+
+    public LoginRateLimiter(AuthPropertiesConfig authPropertiesConfig,
+                            ObjectProvider<StringRedisTemplate> redisProvider,
+                            MeterRegistry registry) {
+        this.cfg = authPropertiesConfig.getRateLimit();
+        this.redisProvider = redisProvider;
+        this.registry = registry;
+        this.perIp = new Gcra(cfg.getPerIp());
+        this.perEmail = new Gcra(cfg.getPerEmail());
+        this.global = new Gcra(cfg.getGlobal());
+    }
+
+    /**
+     * Take one attempt from every applicable bucket, or from none if any limit rejects it.
+     *
+     * @param ip    client address, may be null
+     * @param email normalised email, may be null (e.g. unparsable body)
+     */
+    public Decision tryAcquire(String ip, String email) {
+        if (!cfg.isEnabled()) return Decision.ALLOWED;
+        long now = System.nanoTime();
+
+        // 1. Check every local limit before consuming from any
+        long wait;
+        if (ip != null && (wait = perIp.waitFor(ipBuckets.get(ip), now)) > 0) {
+            return reject("ip", wait);
+        }
+        if (email != null && (wait = perEmail.waitFor(emailBuckets.get(email), now)) > 0) {
+            return reject("email", wait);
+        }
+        if ((wait = global.waitFor(globalBucket, now)) > 0) {
+            return reject("global", wait);
+        }
+
+        // 2. Cluster-wide limits, checked and counted atomically
+        if (cfg.isRedisEnabled()) {
+            Decision cluster = checkCluster(ip, email);
+            if (cluster != null) return cluster;
+        }
+
+        // 3. Consume; a concurrent attempt may have taken the last token since the check
+        if (ip != null && (wait = perIp.tryAcquire(bucket(ipBuckets, ip, now), now)) > 0) {
+            return reject("ip", wait);
+        }
+        if (email != null && (wait = perEmail.tryAcquire(bucket(emailBuckets, email, now), now)) > 0) {
+            return reject("email", wait);
+        }
+        if ((wait = global.tryAcquire(globalBucket, now)) > 0) {
+            return reject("global", wait);
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Drop buckets that have fully refilled; they are indistinguishable from new ones.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void prune() {
+        long now = System.nanoTime();
+        ipBuckets.values().removeIf(tat -> tat.get() - now <= 0);
+        emailBuckets.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+
+    // ---- Internal Methods ----
+
+    private AtomicLong bucket(ConcurrentHashMap<String, AtomicLong> buckets, String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) return bucket;
+
+        if (buckets.size() >= cfg.getMaxTrackedKeys()) evictOne(buckets);
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    /**
+     * Remove the most idle (lowest TAT, i.e. closest to refilled) of the first few buckets.
+     * Buckets that are actually limiting someone have a high TAT and are the last to go.
+     */
+    private static void evictOne(ConcurrentHashMap<String, AtomicLong> buckets) {
+        Map.Entry<String, AtomicLong> victim = null;
+        Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Map.Entry<String, AtomicLong> e = it.next();
+            if (victim == null || e.getValue().get() - victim.getValue().get() < 0) victim = e;
+        }
+        if (victim != null) buckets.remove(victim.getKey(), victim.getValue());
+    }
+
+    /**
+     * @return a rejection if a cluster-wide limit is exhausted (nothing is counted then), else null
+     */
+    private Decision checkCluster(String ip, String email) {
+        List<String> scopes = new ArrayList<>(2);
+        List<String> keys = new ArrayList<>(2);
+        List<String> args = new ArrayList<>(4);
+        long nowMs = System.currentTimeMillis();
+        if (ip != null) addWindow(scopes, keys, args, "ip", ip, cfg.getPerIp(), nowMs);
+        if (email != null) addWindow(scopes, keys, args, "email", email, cfg.getPerEmail(), nowMs);
+        if (keys.isEmpty()) return null;
+
+        try {
+            Long full = redisProvider.getObject().execute(WINDOW_SCRIPT, keys, args.toArray());
+            if (full == null || full == 0) return null;
+            String scope = scopes.get(full.intValue() - 1);
+            long periodMs = ("ip".equals(scope) ? cfg.getPerIp() : cfg.getPerEmail()).getPeriod().toMillis();
+            return reject(scope, Duration.ofMillis(periodMs - nowMs % periodMs).toNanos());
+        } catch (RuntimeException e) {
+            log.warn("Cluster rate limit check failed, using local limits only: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void addWindow(List<String> scopes, List<String> keys, List<String> args,
+                                  String scope, String key, AuthPropertiesConfig.Limit limit, long nowMs) {
+        long periodMs = limit.getPeriod().toMillis();
+        scopes.add(scope);
+        keys.add(REDIS_KEY_PREFIX + scope + ":" + key + ":" + (nowMs / periodMs));
+        args.add(Long.toString(periodMs));
+        args.add(Long.toString(limit.getCapacity()));
+    }
+
+    private Decision reject(String scope, long waitNanos) {
+        rejected.computeIfAbsent(scope, s -> Counter.builder("auth.rate_limit.rejected")
+                        .tag("scope", s)
+                        .register(registry))
+                .increment();
+        return new Decision(false, scope, Duration.ofNanos(waitNanos));
+    }
+
+    /**
+     * GCRA parameters for one limit. A bucket's state is its theoretical arrival time (TAT):
+     * an attempt is allowed while {@code TAT - now <= tolerance}, and each allowed attempt
+     * pushes TAT forward by one emission interval.
+     */
+    private static final class Gcra {
+        private final long interval;
+        private final long tolerance;
+
+        Gcra(AuthPropertiesConfig.Limit limit) {
+            this.interval = Math.max(1, limit.getPeriod().toNanos() / limit.getCapacity());
+            this.tolerance = interval * (limit.getCapacity() - 1);
+        }
+
+        /**
+         * Check without consuming; a missing bucket is a full one.
+         *
+         * @return 0 if an attempt would be allowed, otherwise nanoseconds until it would be
+         */
+        long waitFor(AtomicLong tat, long now) {
+            if (tat == null) return 0;
+            long current = tat.get();
+            long base = current - now > 0 ? current : now;
+            return Math.max(0, base - now - tolerance);
+        }
+
+        /**
+         * @return 0 if allowed, otherwise nanoseconds until the next attempt would be
+         */
+        long tryAcquire(AtomicLong tat, long now) {
+            while (true) {
+                long current = tat.get();
+                long base = current - now > 0 ? current : now;
+                long wait = base - now - tolerance;
+                if (wait > 0) return wait;
+                if (tat.compareAndSet(current, base + interval)) return 0;
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.example.logintestbackend.security;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.example.logintestbackend.service.AuthMetrics;
+
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.core.user.OAuth2User;
@@ -11,6 +13,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+import static com.example.logintestbackend.service.AuthMetrics.GOOGLE;
+
 /**
  * Custom handler that runs when an OAuth2 login succeeds (e.g., Google Sign-In).
  * Instead of redirecting to a default page, we generate a JWT token and return it
@@ -21,6 +25,7 @@ import java.util.Map;
 public class OAuth2SuccessHandler implements AuthenticationSuccessHandler {
 
     private final JwtTokenUtil jwtTokenUtil;
+    private final AuthMetrics metrics;
 
     /**
      * Called by Spring Security when OAuth2 login is successful.
@@ -37,10 +42,10 @@ public class OAuth2SuccessHandler implements AuthenticationSuccessHandler {
         String email = principal.getAttribute("email");
         String name  = principal.getAttribute("name");
 
-        String token = jwtTokenUtil.generateToken(
+        String token = metrics.stage(GOOGLE, "sign_token", () -> jwtTokenUtil.generateToken(
             email,
             Map.of("name", name, "provider", "GOOGLE")
-        );
+        ));
 
         try {
             response.setContentType("application/json");
@@ -0,0 +1,105 @@
+package com.example.logintestbackend.security;
+
+import java.util.Map;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the BCrypt cost for this host and builds the application's {@link PasswordEncoder}.
+ *
+ * Responsibilities:
+ * - Time a few hashes at {@code app.auth.hashing.min-strength} at startup and take the highest
+ *   cost whose estimated latency (each +1 doubles the work) stays within {@code target}.
+ * - Wrap the encoder in a {@link DelegatingPasswordEncoder} so new hashes are stored as
+ *   {@code {bcrypt}$2a$NN$...}, while legacy unprefixed BCrypt hashes still verify.
+ * - Report stored hashes below the calibrated cost as needing an upgrade, so they are
+ *   rehashed on the next successful login. Hashes are never downgraded: an instance that
+ *   calibrates low (slow or busy host) must not weaken hashes other instances wrote.
+ */
+@Slf4j
+public final class PasswordCostCalibrator {
+
+    private static final String ENCODING_ID = "bcrypt";
+    private static final int SAMPLES = 3;
+
+    private PasswordCostCalibrator() {
+    }
+
+    /**
+     * @return delegating encoder hashing at the calibrated (or configured) BCrypt cost
+     */
+    public static PasswordEncoder calibratedEncoder(AuthPropertiesConfig.Hashing cfg) {
+        int strength = cfg.getStrength() != null ? cfg.getStrength() : calibrate(cfg);
+        BCryptPasswordEncoder bcrypt = new TargetCostBCryptPasswordEncoder(strength);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(ENCODING_ID, Map.of(ENCODING_ID, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt); // hashes stored before the {id} prefix
+        return encoder;
+    }
+
+    /**
+     * @return highest cost in [min-strength, max-strength] whose estimated hash time is within target
+     */
+    static int calibrate(AuthPropertiesConfig.Hashing cfg) {
+        int strength = cfg.getMinStrength();
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(strength);
+        probe.encode("calibration"); // warm-up
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        long target = cfg.getTarget().toNanos();
+        double estimate = best;
+        while (strength < cfg.getMaxStrength() && estimate * 2 <= target) {
+            strength++;
+            estimate *= 2;
+        }
+        log.info("BCrypt cost calibrated to {} (~{} ms per hash, target {} ms)",
+                strength, Math.round(estimate / 1_000_000), cfg.getTarget().toMillis());
+        return strength;
+    }
+
+    /**
+     * @return the cost encoded in a BCrypt hash ({@code $2a$NN$...}), or -1 if it is not one
+     */
+    static int costOf(String bcryptHash) {
+        if (bcryptHash == null || bcryptHash.length() < 7 || bcryptHash.charAt(0) != '$'
+                || bcryptHash.charAt(3) != '$' || bcryptHash.charAt(6) != '$') {
+            return -1;
+        }
+        int tens = bcryptHash.charAt(4) - '0';
+        int ones = bcryptHash.charAt(5) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) return -1;
+        return tens * 10 + ones;
+    }
+
+    /**
+     * BCrypt encoder whose upgrade check tolerates malformed hashes (reported as not
+     * upgradable) instead of throwing with the hash in the message.
+     */
+    private static final class TargetCostBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+        private final int strength;
+
+        TargetCostBCryptPasswordEncoder(int strength) {
+            super(strength);
+            this.strength = strength;
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            int cost = costOf(encodedPassword);
+            return cost != -1 && cost < strength;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.logintestbackend.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+import com.example.logintestbackend.exception.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs password hashing and verification on a dedicated, bounded pool.
+ *
+ * Responsibilities:
+ * - Keep BCrypt off Tomcat request threads so a login burst cannot starve other traffic.
+ * - Cap hashing CPU at {@code app.auth.hashing.threads} workers.
+ * - Admission control: once {@code queue-capacity} jobs are waiting, new ones are rejected
+ *   immediately with {@link PasswordHashingBusyException} (503 + Retry-After).
+ * - Count every BCrypt call ({@code auth.password.hash.calls}) and expose queue depth / busy
+ *   workers as gauges, so duplicate verifications or saturation show up on dashboards.
+ * - Opportunistically rehash passwords stored at an outdated cost after a successful login.
+ * - Run the database steps that follow a hash ({@link #io()}) on a separate pool of
+ *   {@code io-threads}, so BCrypt workers never wait on connections or statements.
+ */
+@Slf4j
+@Component
+public class PasswordHashingExecutor {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final ThreadPoolExecutor ioPool;
+    private final int retryAfterSeconds;
+    private final boolean rehashOnLogin;
+    private final Counter matchesCalls;
+    private final Counter encodeCalls;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   AuthPropertiesConfig authPropertiesConfig,
+                                   MeterRegistry registry) {
+        this.passwordEncoder = passwordEncoder;
+        AuthPropertiesConfig.Hashing cfg = authPropertiesConfig.getHashing();
+        this.retryAfterSeconds = cfg.getRetryAfterSeconds();
+        this.rehashOnLogin = cfg.isRehashOnLogin();
+
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(cfg.getThreads(), cfg.getThreads(), 60, TimeUnit.SECONDS,
+                cfg.getQueueCapacity() > 0 ? new ArrayBlockingQueue<>(cfg.getQueueCapacity()) : new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Unbounded queue: every job here follows a hashing job, which admission control already caps
+        AtomicInteger ioSeq = new AtomicInteger();
+        this.ioPool = new ThreadPoolExecutor(cfg.getIoThreads(), cfg.getIoThreads(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "auth-io-" + ioSeq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        this.matchesCalls = Counter.builder("auth.password.hash.calls").tag("op", "matches").register(registry);
+        this.encodeCalls  = Counter.builder("auth.password.hash.calls").tag("op", "encode").register(registry);
+        Gauge.builder("auth.password.hash.queued", this, PasswordHashingExecutor::queuedJobs).register(registry);
+        Gauge.builder("auth.password.hash.active", this, PasswordHashingExecutor::activeJobs).register(registry);
+        Gauge.builder("auth.password.io.queued", ioPool, p -> p.getQueue().size()).register(registry);
+    }
+
+    /**
+     * Verify a raw password against a stored hash on the hashing pool.
+     */
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> {
+            matchesCalls.increment();
+            return passwordEncoder.matches(rawPassword, encodedPassword);
+        });
+    }
+
+    /**
+     * Hash a raw password on the hashing pool.
+     */
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> {
+            encodeCalls.increment();
+            return passwordEncoder.encode(rawPassword);
+        });
+    }
+
+    /**
+     * @return executor for the blocking (database) continuations of hashing jobs
+     */
+    public Executor io() {
+        return ioPool;
+    }
+
+    /**
+     * Re-encode a just-verified password whose stored hash is below the current cost,
+     * then hand the new hash to {@code store} on the {@link #io()} pool. Runs in the background and is best effort:
+     * skipped while logins are queued so upgrades never take capacity from them;
+     * the next login simply tries again.
+     */
+    public void upgradeIfNeeded(CharSequence rawPassword, String encodedPassword, Consumer<String> store) {
+        if (!rehashOnLogin || !passwordEncoder.upgradeEncoding(encodedPassword) || !pool.getQueue().isEmpty()) {
+            return;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    encodeCalls.increment();
+                    String next = passwordEncoder.encode(rawPassword);
+                    ioPool.execute(() -> {
+                        try {
+                            store.accept(next);
+                        } catch (RuntimeException e) {
+                            log.warn("Password rehash write failed: {}", e.getMessage());
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Password rehash failed: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Hashing pool busy, skipping password rehash");
+        }
+    }
+
+    /**
+     * Blocking variant for synchronous callers (e.g. Spring Security providers).
+     * Still subject to the pool's CPU cap and admission control.
+     */
+    public boolean matchesNow(CharSequence rawPassword, String encodedPassword) {
+        try {
+            return matches(rawPassword, encodedPassword).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /**
+     * @return jobs currently waiting for a hashing thread
+     */
+    public int queuedJobs() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * @return hashing threads currently busy
+     */
+    public int activeJobs() {
+        return pool.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+        ioPool.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> job) {
+        try {
+            return CompletableFuture.supplyAsync(job, pool);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        }
+    }
+}
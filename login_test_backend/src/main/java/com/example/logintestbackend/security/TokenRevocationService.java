@@ -0,0 +1,222 @@
+package com.example.logintestbackend.security;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.util.BloomFilter;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token revocation by {@code jti} ("log out") and by user ("log out everywhere").
+ *
+ * Responsibilities:
+ * - Store revocations in Redis with a TTL matching the remaining token lifetime.
+ * - Keep a local {@link BloomFilter} of revoked ids so the common case (token not revoked)
+ *   is answered in memory; only a Bloom hit costs a Redis EXISTS. Until the filter has been
+ *   built from Redis once, every lookup goes to Redis (and fails closed).
+ * - Share new revocations with other instances over Redis pub/sub, and periodically rebuild
+ *   the filter from Redis so expired revocations fall out and missed messages are recovered.
+ * - Push per-user revocations into {@link UserSecurityEpochs}.
+ *
+ * When {@code app.jwt.revocation.enabled} is false, revocations are kept in memory on this
+ * instance only and Redis is never contacted.
+ */
+@Slf4j
+@Component
+public class TokenRevocationService implements MessageListener {
+
+    public static final String CHANNEL = "auth:revocations";
+
+    private static final String JTI_KEY_PREFIX  = "revoked:jti:";
+    private static final String USER_KEY_PREFIX = "revoked:user:";
+
+    private final JwtPropertiesConfig jwtPropertiesConfig;
+    private final ObjectProvider<StringRedisTemplate> redisProvider;
+    private final UserSecurityEpochs securityEpochs;
+    private final boolean enabled;
+
+    /** Local-only store (jti -> exp epoch second) used when Redis revocation is disabled */
+    private final ConcurrentHashMap<String, Long> localRevoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+
+    /** Whether {@link #filter} holds every revocation; until then a filter miss proves nothing */
+    private volatile boolean ready;
+
+    public TokenRevocationService(JwtPropertiesConfig jwtPropertiesConfig,
+                                  ObjectProvider<StringRedisTemplate> redisProvider,
+                                  UserSecurityEpochs securityEpochs) {
+        this.jwtPropertiesConfig = jwtPropertiesConfig;
+        this.redisProvider = redisProvider;
+        this.securityEpochs = securityEpochs;
+        this.enabled = jwtPropertiesConfig.getRevocation().isEnabled();
+        this.filter = newFilter();
+        this.ready = !enabled; // the local store is complete from the start
+    }
+
+    /**
+     * @return true if this specific token has been revoked.
+     *         Fails closed (revoked) if Redis cannot confirm a Bloom filter hit, or answer
+     *         at all before the filter has been built.
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        String jti = token.id();
+        if (jti == null || (ready && !filter.mightContain(jti))) return false;
+
+        if (!enabled) return localRevoked.containsKey(jti);
+        try {
+            return Boolean.TRUE.equals(redis().hasKey(JTI_KEY_PREFIX + jti));
+        } catch (RuntimeException e) {
+            log.warn("Revocation lookup failed for jti {}, rejecting token: {}", jti, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Revoke a single token until it expires.
+     */
+    public void revoke(VerifiedToken token) {
+        String jti = token.id();
+        if (jti == null) {
+            throw new IllegalArgumentException("Token has no id and cannot be revoked individually");
+        }
+        Duration ttl = Duration.between(Instant.now(), token.expiry());
+        if (ttl.isNegative() || ttl.isZero()) return;
+
+        markRevoked(jti);
+        if (enabled) {
+            StringRedisTemplate redis = redis();
+            redis.opsForValue().set(JTI_KEY_PREFIX + jti, "1", ttl);
+            redis.convertAndSend(CHANNEL, "jti:" + jti);
+        } else {
+            localRevoked.put(jti, token.expiry().getEpochSecond());
+        }
+    }
+
+    /**
+     * Revoke every token issued to this user so far.
+     */
+    public void revokeAll(String email) {
+        long epoch = securityEpochs.bump(email);
+        if (enabled) {
+            String norm = email.trim().toLowerCase();
+            Duration ttl = Duration.ofMinutes(jwtPropertiesConfig.getAccessTokenTtlMins()).plusSeconds(60);
+            StringRedisTemplate redis = redis();
+            redis.opsForValue().set(USER_KEY_PREFIX + norm, Long.toString(epoch), ttl);
+            redis.convertAndSend(CHANNEL, "user:" + epoch + ":" + norm);
+        }
+    }
+
+    /**
+     * Incremental update from another instance (or our own publish echo; both are idempotent).
+     * Payloads: {@code jti:<id>} or {@code user:<epochSecond>:<email>}.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith("jti:")) {
+                markRevoked(body.substring(4));
+            } else if (body.startsWith("user:")) {
+                int sep = body.indexOf(':', 5);
+                securityEpochs.apply(body.substring(sep + 1), Long.parseLong(body.substring(5, sep)));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed revocation message '{}'", body);
+        }
+    }
+
+    /**
+     * Build the filter before the application serves requests. If Redis is unavailable the
+     * service starts anyway, answering every lookup from Redis until a rebuild succeeds.
+     */
+    @PostConstruct
+    public void init() {
+        if (enabled) rebuild();
+    }
+
+    /**
+     * Retry a failed initial build sooner than the rebuild interval: until it succeeds,
+     * every token costs a Redis lookup.
+     */
+    @Scheduled(fixedDelay = 10_000, initialDelay = 10_000)
+    public void buildIfNotReady() {
+        if (!ready) rebuild();
+    }
+
+    /**
+     * Rebuild the Bloom filter from the authoritative store, every
+     * {@code app.jwt.revocation.rebuild-interval} after {@link #init()}; revocations arriving
+     * meanwhile are written to both the old and the new filter.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.rebuild-interval:PT10M}",
+            initialDelayString = "${app.jwt.revocation.rebuild-interval:PT10M}")
+    public void rebuild() {
+        BloomFilter next = newFilter();
+        building = next;
+        try {
+            if (enabled) {
+                StringRedisTemplate redis = redis();
+                scan(redis, JTI_KEY_PREFIX, key -> next.put(key.substring(JTI_KEY_PREFIX.length())));
+                scan(redis, USER_KEY_PREFIX, key -> {
+                    String epoch = redis.opsForValue().get(key);
+                    if (epoch != null) {
+                        securityEpochs.apply(key.substring(USER_KEY_PREFIX.length()), Long.parseLong(epoch));
+                    }
+                });
+            } else {
+                long now = Instant.now().getEpochSecond();
+                localRevoked.values().removeIf(exp -> exp < now);
+                localRevoked.keySet().forEach(next::put);
+            }
+            filter = next;
+            ready = true;
+            log.debug("Revocation filter rebuilt with {} entries", next.insertions());
+        } catch (RuntimeException e) {
+            log.warn("Revocation filter rebuild failed, keeping previous filter{}: {}",
+                    ready ? "" : " (not built yet, checking every token with Redis)", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    // ---- Internal Methods ----
+
+    private void markRevoked(String jti) {
+        filter.put(jti);
+        BloomFilter b = building;
+        if (b != null) b.put(jti);
+    }
+
+    private BloomFilter newFilter() {
+        JwtPropertiesConfig.Revocation cfg = jwtPropertiesConfig.getRevocation();
+        return BloomFilter.create(cfg.getExpectedRevocations(), cfg.getFalsePositiveRate());
+    }
+
+    private StringRedisTemplate redis() {
+        return redisProvider.getObject();
+    }
+
+    private static void scan(StringRedisTemplate redis, String prefix, Consumer<String> action) {
+        ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(1000).build();
+        try (Cursor<String> cursor = redis.scan(options)) {
+            cursor.forEachRemaining(action);
+        }
+    }
+}
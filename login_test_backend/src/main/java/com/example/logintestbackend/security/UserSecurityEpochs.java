@@ -0,0 +1,159 @@
+package com.example.logintestbackend.security;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.ConnectionBulkhead;
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.repository.UserRepository;
+import com.example.logintestbackend.service.UserChangeBus;
+import com.example.logintestbackend.service.UserShards;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-user "security epoch": tokens issued before a user's epoch are rejected.
+ *
+ * The epoch is bumped when something security-relevant changes for an account
+ * (disabled, password changed, sign-in method relinked). This lets
+ * {@link JwtAuthenticationFilter} trust token claims without a DB lookup and still
+ * honour revocation.
+ *
+ * Responsibilities:
+ * - Store bumps on the user row ({@code users.security_epoch}), so they survive restarts,
+ *   and broadcast them to the other instances through {@link UserChangeBus}.
+ * - Answer {@link #isRevoked} from memory: recent epochs (keyed by normalised email, the
+ *   token subject) are loaded at startup and again whenever change events may have been
+ *   missed ({@link #reload()}).
+ * - Prune entries after the access-token TTL; no token they guard is still valid.
+ */
+@Slf4j
+@Component
+public class UserSecurityEpochs {
+
+    private final JwtPropertiesConfig jwtPropertiesConfig;
+    private final UserRepository users;
+    private final UserShards shards;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectProvider<UserChangeBus> userChanges;
+    private final ConcurrentHashMap<String, Long> epochs = new ConcurrentHashMap<>();
+
+    public UserSecurityEpochs(JwtPropertiesConfig jwtPropertiesConfig,
+                              UserRepository users,
+                              UserShards shards,
+                              JdbcTemplate jdbc,
+                              PlatformTransactionManager txManager,
+                              ObjectProvider<UserChangeBus> userChanges) {
+        this.jwtPropertiesConfig = jwtPropertiesConfig;
+        this.users = users;
+        this.shards = shards;
+        this.jdbc = jdbc;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.userChanges = userChanges;
+    }
+
+    /**
+     * Load recent epochs before the first request is authenticated; fails startup if
+     * they cannot be read, since revoked tokens would otherwise be accepted.
+     */
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Invalidate every token issued to this user up to now, on every instance.
+     *
+     * @param email user email (normalised here)
+     * @return the user's epoch after the bump (epoch seconds)
+     */
+    public long bump(String email) {
+        String norm = normalize(email);
+
+        // 1. Persist (an unknown user has no tokens worth keeping, but is still recorded locally)
+        long requested = Instant.now().getEpochSecond();
+        long epoch = ConnectionBulkhead.ACCOUNT_WRITE.call(() -> users.raiseSecurityEpoch(norm, requested))
+                .orElse(requested);
+
+        // 2. Apply here and tell the other instances
+        apply(norm, epoch);
+        UserChangeBus bus = userChanges.getIfAvailable();
+        if (bus != null) bus.securityEpochChanged(norm, epoch);
+
+        log.info("Security epoch bumped for {}", email);
+        return epoch;
+    }
+
+    /**
+     * Record an epoch received from elsewhere (e.g. another instance).
+     */
+    public void apply(String email, long epochSecond) {
+        if (email == null) return;
+        epochs.merge(normalize(email), epochSecond, Math::max);
+    }
+
+    /**
+     * @return true if the token was issued before the user's current epoch.
+     *         Tokens without {@code iat} are treated as revoked once an epoch exists.
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        return isRevoked(token.subject(), token.issuedAt());
+    }
+
+    /**
+     * @return true if something issued to {@code email} at {@code issuedAt} predates the user's epoch
+     */
+    public boolean isRevoked(String email, Instant issuedAt) {
+        if (epochs.isEmpty() || email == null) return false;
+        Long epoch = epochs.get(normalize(email));
+        if (epoch == null) return false;
+        return issuedAt == null || issuedAt.getEpochSecond() < epoch;
+    }
+
+    /**
+     * Read every epoch still guarding a valid token from the users table (each shard).
+     * Called at startup and by {@link UserChangeBus} after it (re)connects, since bumps
+     * broadcast while it was not listening are lost.
+     */
+    public void reload() {
+        long cutoff = cutoff();
+        long[] loaded = {0};
+        shards.forEachShard(shard -> readOnlyTx.executeWithoutResult(status -> jdbc.query(
+                "select email, security_epoch from users where security_epoch > 0 and security_epoch >= ?",
+                (RowCallbackHandler) rs -> {
+                    apply(rs.getString(1), rs.getLong(2));
+                    loaded[0]++;
+                }, cutoff)));
+        log.info("Loaded {} security epochs", loaded[0]);
+    }
+
+    /**
+     * Drop epochs older than the longest possible token lifetime; no token they guard is still valid.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void prune() {
+        long cutoff = cutoff();
+        epochs.values().removeIf(epoch -> epoch < cutoff);
+    }
+
+    // ---- Internal Methods ----
+
+    private long cutoff() {
+        return Instant.now().getEpochSecond() - jwtPropertiesConfig.getAccessTokenTtlMins() * 60 - 60;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase();
+    }
+}
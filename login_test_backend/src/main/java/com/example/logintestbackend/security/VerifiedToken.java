@@ -0,0 +1,47 @@
+package com.example.logintestbackend.security;
+
+import java.time.Instant;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.example.logintestbackend.enums.Provider;
+
+/**
+ * Immutable view of a JWT whose signature, expiry and issuer have already been checked.
+ *
+ * Produced once per request by {@link JwtTokenUtil#verify(String)} and carried through
+ * {@link JwtAuthenticationFilter} into the SecurityContext as the authentication credentials,
+ * so nothing downstream has to parse the token again.
+ *
+ * @param id       token id ({@code jti}), or null for tokens issued without one
+ * @param subject  token subject (the user email)
+ * @param uid      local user id, or null for tokens issued without one (e.g. Google success handler)
+ * @param provider account provider, or null if the claim is missing/unknown
+ * @param issuedAt issued-at instant, or null if the claim is missing
+ * @param expiry   expiration instant
+ * @param issuer   issuer claim
+ */
+public record VerifiedToken(
+    String id,
+    String subject,
+    Long uid,
+    Provider provider,
+    Instant issuedAt,
+    Instant expiry,
+    String issuer
+) {
+
+    /**
+     * @return true if the token has not yet expired at the given instant
+     */
+    public boolean isActiveAt(Instant now) {
+        return expiry.isAfter(now);
+    }
+
+    /**
+     * @return true if this token was issued for the given user (case-insensitive email match)
+     */
+    public boolean isFor(UserDetails userDetails) {
+        return subject != null && subject.equalsIgnoreCase(userDetails.getUsername());
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.logintestbackend.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded in-memory cache of verified JWTs, placed in front of signature verification.
+ *
+ * Responsibilities:
+ * - Map the SHA-256 digest of a token to its {@link VerifiedToken} (the raw token is never stored).
+ * - Drop entries once the token's {@code exp} has passed.
+ * - Cap both the number of entries and their approximate heap footprint.
+ * - Count hits, misses and evictions, and estimate the verification time saved
+ *   ({@code auth.token_cache.*} meters), so the caps can be sized from production data.
+ *
+ * Backed by a {@link ConcurrentHashMap}; there is no global lock. When a cap is exceeded,
+ * a single thread sweeps expired entries and then drops arbitrary ones until the cache is
+ * back under 90% of its limits, while other threads keep reading and writing.
+ * Only successful verifications are cached, so garbage tokens cannot fill it.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    /** Rough per-entry overhead: map node, digest key, entry + token records, Instant */
+    private static final long ENTRY_OVERHEAD_BYTES = 224;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final ConcurrentHashMap<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    public VerifiedTokenCache(JwtPropertiesConfig jwtPropertiesConfig, MeterRegistry registry) {
+        JwtPropertiesConfig.Cache cfg = jwtPropertiesConfig.getCache();
+        this.enabled = cfg.isEnabled();
+        this.maxEntries = cfg.getMaxEntries();
+        this.maxBytes = cfg.getMaxBytes();
+
+        FunctionCounter.builder("auth.token_cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("auth.token_cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("auth.token_cache.evictions", evictions, LongAdder::sum).register(registry);
+        Gauge.builder("auth.token_cache.size", entries, ConcurrentHashMap::size).register(registry);
+        Gauge.builder("auth.token_cache.estimated_bytes", estimatedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("auth.token_cache.estimated_saved", this, VerifiedTokenCache::estimatedSavedSeconds)
+                .baseUnit("seconds").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the cached verification result for a token, or run the verifier on a miss.
+     *
+     * @param token    raw JWT
+     * @param verifier full verification; returns null if the token is invalid
+     * @return the verified token, or null if invalid or expired
+     */
+    public VerifiedToken getOrVerify(String token, Function<String, VerifiedToken> verifier) {
+        TokenDigest key = TokenDigest.of(token);
+        Instant now = Instant.now();
+
+        Entry cached = entries.get(key);
+        if (cached != null) {
+            if (cached.token().isActiveAt(now)) {
+                hits.increment();
+                return cached.token();
+            }
+            // Expired: drop it and fall through (verification will reject it too)
+            if (entries.remove(key, cached)) {
+                estimatedBytes.addAndGet(-cached.weight());
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        VerifiedToken verified = verifier.apply(token);
+        missNanos.add(System.nanoTime() - start);
+
+        if (verified != null) {
+            put(key, verified);
+        }
+        return verified;
+    }
+
+    /**
+     * Drop every cached entry.
+     */
+    public void clear() {
+        entries.clear();
+        estimatedBytes.set(0);
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * Hits multiplied by the average verification time of a miss. Not monotonic (the average
+     * moves), hence a gauge rather than a counter.
+     */
+    private double estimatedSavedSeconds() {
+        long m = misses.sum();
+        if (m == 0) return 0;
+        return hits.sum() * ((double) missNanos.sum() / m) / 1e9;
+    }
+
+    private void put(TokenDigest key, VerifiedToken verified) {
+        Entry entry = new Entry(verified, weightOf(verified));
+        Entry previous = entries.put(key, entry);
+        estimatedBytes.addAndGet(entry.weight() - (previous == null ? 0 : previous.weight()));
+
+        if (entries.size() > maxEntries || estimatedBytes.get() > maxBytes) {
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Bring the cache back under 90% of its limits. Only one thread sweeps at a time;
+     * others skip instead of waiting.
+     */
+    private void evictIfNeeded() {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            long entryTarget = maxEntries * 9L / 10;
+            long byteTarget = maxBytes * 9 / 10;
+            Instant now = Instant.now();
+
+            // Pass 1: expired entries
+            removeWhile(e -> !e.getValue().token().isActiveAt(now), entryTarget, byteTarget, false);
+
+            // Pass 2: arbitrary entries (hash order) until under target
+            removeWhile(e -> true, entryTarget, byteTarget, true);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void removeWhile(Predicate<Map.Entry<TokenDigest, Entry>> candidate,
+                             long entryTarget, long byteTarget, boolean stopAtTarget) {
+        Iterator<Map.Entry<TokenDigest, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (stopAtTarget && entries.size() <= entryTarget && estimatedBytes.get() <= byteTarget) {
+                return;
+            }
+            Map.Entry<TokenDigest, Entry> e = it.next();
+            if (candidate.test(e) && entries.remove(e.getKey(), e.getValue())) {
+                estimatedBytes.addAndGet(-e.getValue().weight());
+                evictions.increment();
+            }
+        }
+    }
+
+    private static long weightOf(VerifiedToken t) {
+        long chars = (t.subject() == null ? 0 : t.subject().length())
+                + (t.issuer() == null ? 0 : t.issuer().length());
+        return ENTRY_OVERHEAD_BYTES + chars;
+    }
+
+    /**
+     * 256-bit SHA-256 digest of a token, held as four longs to avoid array/String keys.
+     */
+    private record TokenDigest(long a, long b, long c, long d) {
+        static TokenDigest of(String token) {
+            MessageDigest md = SHA256.get();
+            ByteBuffer buf = ByteBuffer.wrap(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+        }
+    }
+
+    private record Entry(VerifiedToken token, long weight) {}
+}
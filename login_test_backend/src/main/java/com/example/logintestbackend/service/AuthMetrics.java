@@ -0,0 +1,134 @@
+package com.example.logintestbackend.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import com.example.logintestbackend.exception.EmailAlreadyExistsException;
+import com.example.logintestbackend.exception.EmailNotFoundException;
+import com.example.logintestbackend.exception.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer timers for the authentication flows (login, register, google).
+ *
+ * Responsibilities:
+ * - {@code auth.flow}: end-to-end latency per flow, tagged by {@code outcome}.
+ * - {@code auth.stage}: latency of each stage within a flow (email normalisation, user lookup,
+ *   password verification, token signing, response building...), tagged by {@code outcome}.
+ * - Publish percentile histograms so p50/p95/p99 can be aggregated across instances
+ *   (scraped from {@code /actuator/prometheus}).
+ *
+ * Outcomes are derived from the exception a stage or flow ends with: {@code success},
+ * {@code not_found}, {@code conflict}, {@code rejected} (bad input or credentials),
+ * {@code busy} (hashing queue full) or {@code error}.
+ */
+@Component
+public class AuthMetrics {
+
+    public static final String LOGIN    = "login";
+    public static final String REGISTER = "register";
+    public static final String GOOGLE   = "google";
+
+    private final MeterRegistry registry;
+
+    /** Timers by "name|flow|stage|outcome"; avoids rebuilding meter ids on the hot path */
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Time a whole synchronous flow.
+     */
+    public <T> T flow(String flow, Supplier<T> body) {
+        return time("auth.flow", flow, null, body);
+    }
+
+    /**
+     * Time a whole flow that completes asynchronously. Failures thrown before the
+     * future is returned are recorded as well.
+     */
+    public <T> CompletableFuture<T> flowAsync(String flow, Supplier<CompletableFuture<T>> body) {
+        return timeAsync("auth.flow", flow, null, body);
+    }
+
+    /**
+     * Time one synchronous stage of a flow.
+     */
+    public <T> T stage(String flow, String stage, Supplier<T> body) {
+        return time("auth.stage", flow, stage, body);
+    }
+
+    /**
+     * Time one asynchronous stage of a flow (including time spent queued).
+     */
+    public <T> CompletableFuture<T> stageAsync(String flow, String stage, Supplier<CompletableFuture<T>> body) {
+        return timeAsync("auth.stage", flow, stage, body);
+    }
+
+    // ---- Internal Methods ----
+
+    private <T> T time(String name, String flow, String stage, Supplier<T> body) {
+        long start = System.nanoTime();
+        try {
+            T result = body.get();
+            record(name, flow, stage, start, null);
+            return result;
+        } catch (RuntimeException e) {
+            record(name, flow, stage, start, e);
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> timeAsync(String name, String flow, String stage,
+                                               Supplier<CompletableFuture<T>> body) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = body.get();
+        } catch (RuntimeException e) {
+            record(name, flow, stage, start, e);
+            throw e;
+        }
+        return future.whenComplete((result, e) -> record(name, flow, stage, start, e));
+    }
+
+    private void record(String name, String flow, String stage, long start, Throwable failure) {
+        String outcome = outcome(failure);
+        String key = name + '|' + flow + '|' + stage + '|' + outcome;
+        timers.computeIfAbsent(key, k -> {
+                    Timer.Builder b = Timer.builder(name)
+                            .tag("flow", flow)
+                            .tag("outcome", outcome)
+                            .publishPercentileHistogram();
+                    if (stage != null) b.tag("stage", stage);
+                    return b.register(registry);
+                })
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the outcome tag for a flow or stage that ended with {@code failure} (null on success)
+     */
+    static String outcome(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure == null) return "success";
+        if (failure instanceof EmailNotFoundException) return "not_found";
+        if (failure instanceof EmailAlreadyExistsException) return "conflict";
+        if (failure instanceof PasswordHashingBusyException) return "busy";
+        if (failure instanceof IllegalArgumentException
+                || failure instanceof AuthenticationException) return "rejected";
+        return "error";
+    }
+}
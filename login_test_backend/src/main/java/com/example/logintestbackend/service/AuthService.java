@@ -1,27 +1,31 @@
 package com.example.logintestbackend.service;
 
 import com.example.logintestbackend.DTO.request.LoginRequest;
+import com.example.logintestbackend.DTO.request.RefreshRequest;
 import com.example.logintestbackend.DTO.request.RegisterRequest;
 import com.example.logintestbackend.DTO.response.AuthResponse;
+import com.example.logintestbackend.security.VerifiedToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthService {
 
     /**
      * Local email/password login.
      *
      * @param request login request containing email and password
-     * @return authentication response with JWT tokens and user info
+     * @return future authentication response with JWT tokens and user info
      */
-    AuthResponse login(LoginRequest request);
+    CompletableFuture<AuthResponse> login(LoginRequest request);
 
     /**
      * Register a new local account.
      *
      * @param request registration request with name, email, and password
-     * @return authentication response with JWT tokens and user info
+     * @return future authentication response with JWT tokens and user info
      */
-    AuthResponse register(RegisterRequest request);
+    CompletableFuture<AuthResponse> register(RegisterRequest request);
 
     /**
      * Handle login or registration via Google OAuth2.
@@ -31,4 +35,26 @@ public interface AuthService {
      * @return authentication response with provided token and user info
      */
     AuthResponse googleLogin(OAuth2User principal, String token);
+
+    /**
+     * Exchange a refresh token for a new access token and a rotated refresh token.
+     *
+     * @param request refresh request containing the current refresh token
+     * @return authentication response with the new tokens
+     */
+    AuthResponse refresh(RefreshRequest request);
+
+    /**
+     * Revoke the given access token until it expires.
+     *
+     * @param token the verified token presented by the caller
+     */
+    void logout(VerifiedToken token);
+
+    /**
+     * Revoke every access token issued to the user so far ("log out everywhere").
+     *
+     * @param email the user's email
+     */
+    void logoutEverywhere(String email);
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.example.logintestbackend.service;
+
+import org.springframework.stereotype.Service;
+
+import com.example.logintestbackend.DTO.projection.GoogleUpsertResult;
+import com.example.logintestbackend.config.ConnectionBulkhead;
+import com.example.logintestbackend.repository.UserRepository;
+import com.example.logintestbackend.security.UserSecurityEpochs;
+
+import lombok.RequiredArgsConstructor;
+
+import static com.example.logintestbackend.service.AuthMetrics.GOOGLE;
+
+/**
+ * Links Google identities to local accounts; shared by the OIDC login flow
+ * ({@code GoogleOAuth2UserService}) and {@code AuthServiceImpl.googleLogin}.
+ *
+ * Responsibilities:
+ * - Create or update the account with a single upsert that only writes when something changed.
+ * - Bump the user's security epoch when an account is relinked to Google or re-enabled.
+ * - Publish a user change (caches, other instances) only when the row was actually written.
+ * - Write through the {@code ACCOUNT_WRITE} connection bulkhead.
+ */
+@Service
+@RequiredArgsConstructor
+public class GoogleAccountService {
+
+    private final UserRepository users;
+    private final UserSecurityEpochs securityEpochs;
+    private final UserChangeBus userChanges;
+    private final AuthMetrics metrics;
+
+    /**
+     * @param sub   Google subject (stable user id)
+     * @param email normalised email reported by Google
+     * @param name  display name, may be null
+     * @return the linked account
+     */
+    public GoogleUpsertResult link(String sub, String email, String name) {
+        return ConnectionBulkhead.ACCOUNT_WRITE.call(() -> {
+            GoogleUpsertResult account = metrics.stage(GOOGLE, "upsert_user", () -> users.upsertGoogleUser(sub, email, name)
+                    // Lost an insert race: the competing row is committed now, so a second pass finds it
+                    .or(() -> users.upsertGoogleUser(sub, email, name))
+                    .orElseThrow(() -> new IllegalStateException("Google account upsert returned no row for " + email)));
+
+            // Sign-in method is being relinked: tokens issued for the old method become invalid
+            if (account.isRelinked()) {
+                securityEpochs.bump(account.getEmail());
+            }
+            if (account.isChanged()) {
+                userChanges.userChanged(account.getEmail());
+            }
+            return account;
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.logintestbackend.service;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+import com.example.logintestbackend.repository.UserRepository;
+import com.example.logintestbackend.util.BloomFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter of every registered (normalised) email.
+ *
+ * Responsibilities:
+ * - Answer "definitely not registered" in memory, so register can skip its existence query
+ *   (the insert's {@code ON CONFLICT} still decides). The filter can miss emails registered
+ *   elsewhere that it has not heard about yet, so a miss is never a final answer: login
+ *   always reads the user from Postgres.
+ * - Build from a streamed {@code select email from users} (on every shard) shortly after
+ *   startup; until the first build completes every email is reported as possibly registered.
+ * - Learn new emails from the register and Google upsert paths, on this and other instances
+ *   (via {@link UserChangeBus}); emails added while a rebuild is streaming go into both the
+ *   old and the new filter.
+ * - Rebuild every {@code rebuild-interval}, or early once the estimated false-positive rate
+ *   has doubled, sizing for max(expected-users, 1.5 x row count).
+ *
+ * The unique index on {@code users.email} stays the source of truth: a false positive only
+ * costs the query the filter would have skipped, and a false negative only costs register
+ * its early duplicate check.
+ */
+@Slf4j
+@Service
+public class KnownEmailFilter {
+
+    private final UserRepository users;
+    private final UserShards shards;
+    private final TransactionTemplate readOnlyTx;
+    private final AuthPropertiesConfig.KnownEmails cfg;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private volatile Instant lastBuild = Instant.EPOCH;
+
+    public KnownEmailFilter(UserRepository users,
+                            UserShards shards,
+                            PlatformTransactionManager txManager,
+                            AuthPropertiesConfig authPropertiesConfig,
+                            MeterRegistry registry) {
+        this.users = users;
+        this.shards = shards;
+        this.cfg = authPropertiesConfig.getKnownEmails();
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+
+        Gauge.builder("auth.known_emails.entries", this, f -> f.filter == null ? 0 : f.filter.insertions())
+                .register(registry);
+        Gauge.builder("auth.known_emails.false_positive_rate", this,
+                        f -> f.filter == null ? 1 : f.filter.expectedFalsePositiveRate())
+                .register(registry);
+    }
+
+    /**
+     * @param email normalised email
+     * @return false if this instance has not seen the email; it may still exist (registered
+     *         on another instance, or outside the app, since the last rebuild), so only use a
+     *         false to skip work that a later step re-checks
+     */
+    public boolean mightExist(String email) {
+        BloomFilter f = filter;
+        return !cfg.isEnabled() || f == null || f.mightContain(email);
+    }
+
+    /**
+     * Record a registered email (local registration or Google upsert).
+     */
+    public void add(String email) {
+        BloomFilter f = filter;
+        if (f != null) f.put(email);
+        BloomFilter b = building;
+        if (b != null) b.put(email);
+    }
+
+    /**
+     * Make the next {@link #maintain()} run rebuild (e.g. after missed change events).
+     */
+    public void requestRebuild() {
+        lastBuild = Instant.EPOCH;
+    }
+
+    /**
+     * Build on first run, then rebuild when the interval has passed or the filter has
+     * drifted past twice its target false-positive rate.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void maintain() {
+        if (!cfg.isEnabled()) return;
+        BloomFilter f = filter;
+        boolean due = f == null
+                || Instant.now().isAfter(lastBuild.plus(cfg.getRebuildInterval()))
+                || f.expectedFalsePositiveRate() > 2 * cfg.getFalsePositiveRate();
+        if (due) rebuild();
+    }
+
+    /**
+     * Stream every email (shard by shard) into a fresh filter and swap it in.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            long[] rows = {0};
+            shards.forEachShard(shard -> rows[0] += readOnlyTx.execute(status -> users.count()));
+            long expected = Math.max(cfg.getExpectedUsers(), rows[0] + rows[0] / 2);
+            BloomFilter next = BloomFilter.create(expected, cfg.getFalsePositiveRate());
+            building = next;
+            shards.forEachShard(shard -> readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<String> emails = users.streamAllEmails()) {
+                    emails.forEach(next::put);
+                }
+            }));
+            filter = next;
+            lastBuild = Instant.now();
+            log.info("Known-email filter rebuilt: {} emails, {} MiB, {} ms",
+                    filter.insertions(), filter.bitCount() >>> 23, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Known-email filter rebuild failed, keeping previous filter: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.logintestbackend.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+import com.example.logintestbackend.enums.AuditOverflowPolicy;
+import com.example.logintestbackend.security.ClientIpResolver;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Audit trail of login, registration and Google sign-in attempts ({@code login_events}).
+ *
+ * Responsibilities:
+ * - {@link #track} / {@link #trackAsync}: time an auth flow and record its outcome (same
+ *   outcomes as {@link AuthMetrics}), with the client IP and user agent captured on the
+ *   request thread. The flow only pays for building the event and enqueueing it.
+ * - Buffer events in a bounded in-memory queue; when it is full, drop and count the event,
+ *   or (policy {@code BLOCK}) wait up to {@code block-timeout} for space first.
+ * - Drain the buffer on one background thread, inserting up to {@code batch-size} events
+ *   per transaction at least every {@code flush-interval}. A failed batch is retried
+ *   {@code batch-retries} times, then written row by row: rows the database rejects are
+ *   dropped, so one bad event cannot hold back the others.
+ * - Create monthly partitions ahead of time and drop those past {@code retention-months}.
+ *   If rows for a month already landed in the default partition, they are moved into the
+ *   new month's partition (the default is swapped for a fresh one in the same transaction).
+ * - On shutdown, write what is still buffered (within {@code shutdown-timeout}).
+ *
+ * Events are best effort: whatever is buffered when the process dies is lost, and every
+ * lost event is counted ({@code auth.audit.events{result=dropped|failed}}).
+ */
+@Slf4j
+@Service
+public class LoginAuditLog {
+
+    private static final String INSERT = """
+            insert into login_events (occurred_at, flow, outcome, email, ip, user_agent, latency_us)
+            values (?, ?, ?, ?, cast(? as inet), ?, ?)
+            """;
+    private static final String PARTITIONS = """
+            select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+             where i.inhparent = 'login_events'::regclass
+            """;
+    private static final Pattern PARTITION_NAME = Pattern.compile("^login_events_y(\\d{4})m(\\d{2})$");
+    private static final String DEFAULT_PARTITION = "login_events_default";
+
+    /** Advisory lock id serialising partition maintenance across instances */
+    private static final long MAINTENANCE_LOCK = 0x6c6f67696e5f6576L;
+    private static final int MAX_EMAIL_LENGTH = 320;
+    private static final int MAX_USER_AGENT_LENGTH = 512;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final AuthPropertiesConfig.AuditLog cfg;
+    private final ClientIpResolver clientIps;
+    private final BlockingQueue<LoginEvent> buffer;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public LoginAuditLog(JdbcTemplate jdbc,
+                         PlatformTransactionManager txManager,
+                         AuthPropertiesConfig authPropertiesConfig,
+                         ClientIpResolver clientIps,
+                         MeterRegistry registry) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.cfg = authPropertiesConfig.getAuditLog();
+        this.clientIps = clientIps;
+        this.buffer = new ArrayBlockingQueue<>(cfg.getBufferCapacity());
+
+        this.written = Counter.builder("auth.audit.events").tag("result", "written").register(registry);
+        this.dropped = Counter.builder("auth.audit.events").tag("result", "dropped").register(registry);
+        this.failed  = Counter.builder("auth.audit.events").tag("result", "failed").register(registry);
+        Gauge.builder("auth.audit.buffered", buffer, BlockingQueue::size).register(registry);
+    }
+
+    /**
+     * Run a synchronous auth flow and record it.
+     *
+     * @param flow  {@link AuthMetrics#LOGIN}, {@link AuthMetrics#REGISTER} or {@link AuthMetrics#GOOGLE}
+     * @param email email as submitted (normalised by the writer), may be null
+     */
+    public <T> T track(String flow, String email, Supplier<T> body) {
+        if (!cfg.isEnabled()) return body.get();
+        Attempt attempt = new Attempt(flow, email);
+        try {
+            T result = body.get();
+            attempt.finish(null);
+            return result;
+        } catch (RuntimeException e) {
+            attempt.finish(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Run an auth flow that completes asynchronously and record it once it completes.
+     * Failures thrown before the future is returned are recorded as well.
+     */
+    public <T> CompletableFuture<T> trackAsync(String flow, String email, Supplier<CompletableFuture<T>> body) {
+        if (!cfg.isEnabled()) return body.get();
+        Attempt attempt = new Attempt(flow, email);
+        CompletableFuture<T> future;
+        try {
+            future = body.get();
+        } catch (RuntimeException e) {
+            attempt.finish(e);
+            throw e;
+        }
+        return future.whenComplete((result, e) -> attempt.finish(e));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!cfg.isEnabled()) return;
+        maintainPartitions();
+        running = true;
+        writer = new Thread(this::writeLoop, "login-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop accepting events and wait for the writer to flush the buffer.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) return;
+        running = false;
+        writer.join(cfg.getShutdownTimeout().toMillis());
+        if (writer.isAlive()) {
+            log.warn("Login audit writer did not finish within {}; {} events not written",
+                    cfg.getShutdownTimeout(), buffer.size());
+        }
+    }
+
+    /**
+     * Create this month's partition and the next {@code partitions-ahead}, and drop
+     * partitions older than {@code retention-months}. Each month and each drop is its own
+     * transaction, so one failure does not hold back the others.
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void maintainPartitions() {
+        if (!cfg.isEnabled()) return;
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+
+        // 1. Current and upcoming months
+        for (int i = 0; i <= cfg.getPartitionsAhead(); i++) {
+            YearMonth month = now.plusMonths(i);
+            try {
+                createPartition(month);
+            } catch (RuntimeException e) {
+                // Rows land in login_events_default until the partition exists
+                log.warn("Could not create login audit partition {}: {}", partitionName(month), e.getMessage());
+            }
+        }
+
+        // 2. Expired months
+        if (cfg.getRetentionMonths() <= 0) return;
+        YearMonth oldestKept = now.minusMonths(cfg.getRetentionMonths() - 1L);
+        List<String> partitions;
+        try {
+            partitions = jdbc.queryForList(PARTITIONS, String.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not list login audit partitions: {}", e.getMessage());
+            return;
+        }
+        for (String partition : partitions) {
+            Matcher m = PARTITION_NAME.matcher(partition);
+            if (!m.matches() || !YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)))
+                    .isBefore(oldestKept)) {
+                continue;
+            }
+            try {
+                tx.executeWithoutResult(status -> {
+                    lockMaintenance();
+                    jdbc.execute("drop table if exists " + partition);
+                });
+                log.info("Dropped expired login audit partition {}", partition);
+            } catch (RuntimeException e) {
+                log.warn("Could not drop login audit partition {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * Create one month's partition. A plain {@code CREATE ... PARTITION OF} fails while the
+     * default partition holds rows of that month, so in that case the default is detached
+     * and replaced, and its rows are re-inserted through the parent (landing in the new
+     * month's partition, or the new default), all in one transaction.
+     */
+    private void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        String from = month.atDay(1) + " 00:00:00+00";
+        String to = month.plusMonths(1).atDay(1) + " 00:00:00+00";
+        String create = "create table if not exists " + name + " partition of login_events"
+                + " for values from ('" + from + "') to ('" + to + "')";
+
+        tx.executeWithoutResult(status -> {
+            lockMaintenance();
+            if (Boolean.TRUE.equals(jdbc.queryForObject("select to_regclass(?) is not null", Boolean.class, name))) {
+                return;
+            }
+            Boolean stranded = jdbc.queryForObject("select exists (select 1 from " + DEFAULT_PARTITION
+                    + " where occurred_at >= cast(? as timestamptz) and occurred_at < cast(? as timestamptz))",
+                    Boolean.class, from, to);
+            if (!Boolean.TRUE.equals(stranded)) {
+                jdbc.execute(create);
+                return;
+            }
+
+            String old = DEFAULT_PARTITION + "_old";
+            jdbc.execute("alter table login_events detach partition " + DEFAULT_PARTITION);
+            jdbc.execute("alter table " + DEFAULT_PARTITION + " rename to " + old);
+            jdbc.execute(create);
+            jdbc.execute("create table " + DEFAULT_PARTITION + " partition of login_events default");
+            int moved = jdbc.update("insert into login_events select * from " + old);
+            jdbc.execute("drop table " + old);
+            log.info("Created login audit partition {} and moved {} rows out of the default partition", name, moved);
+        });
+    }
+
+    private void lockMaintenance() {
+        jdbc.query("select pg_advisory_xact_lock(?)", rs -> null, MAINTENANCE_LOCK);
+    }
+
+    private void enqueue(LoginEvent event) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        boolean queued = buffer.offer(event);
+        if (!queued && cfg.getOverflowPolicy() == AuditOverflowPolicy.BLOCK) {
+            try {
+                queued = buffer.offer(event, cfg.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queued) dropped.increment();
+    }
+
+    private void writeLoop() {
+        List<LoginEvent> batch = new ArrayList<>(cfg.getBatchSize());
+        long backoff = 1_000;
+        int retries = 0;
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            try {
+                // 1. Wait for the first event, then take whatever else is already buffered
+                if (batch.isEmpty()) {
+                    LoginEvent first = buffer.poll(cfg.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    buffer.drainTo(batch, cfg.getBatchSize() - 1);
+                }
+
+                // 2. One multi-row batch per transaction
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(INSERT, batch, batch.size(), LoginAuditLog::bind));
+                written.increment(batch.size());
+                batch.clear();
+                backoff = 1_000;
+                retries = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // 3. Retry the batch while the database may just be briefly unavailable, then go
+                //    row by row; while stopping, go row by row at once instead of holding shutdown
+                if (running && retries < cfg.getBatchRetries()) {
+                    retries++;
+                    log.warn("Login audit write failed, retry {} of {} in {} ms: {}",
+                            retries, cfg.getBatchRetries(), backoff, e.getMessage());
+                } else if (writeRows(batch)) {
+                    backoff = 1_000;
+                    retries = 0;
+                    continue;
+                } else if (!running) {
+                    log.warn("Dropping {} login audit events at shutdown: {}", batch.size(), e.getMessage());
+                    failed.increment(batch.size());
+                    batch.clear();
+                    continue;
+                } else {
+                    // Database unavailable: the rest of the batch goes through the retries again
+                    retries = 0;
+                    log.warn("Login audit database unavailable, retrying {} events in {} ms", batch.size(), backoff);
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * Insert each event of {@code batch} in its own transaction. Events the database rejects
+     * are counted as failed and dropped; written and rejected events leave the batch.
+     *
+     * @return false if the database is unavailable, with the events not yet tried left in {@code batch}
+     */
+    private boolean writeRows(List<LoginEvent> batch) {
+        int done = 0;
+        int rejected = 0;
+        try {
+            for (; done < batch.size(); done++) {
+                LoginEvent event = batch.get(done);
+                try {
+                    tx.executeWithoutResult(status -> jdbc.update(INSERT, ps -> bind(ps, event)));
+                    written.increment();
+                } catch (TransientDataAccessException | DataAccessResourceFailureException
+                         | CannotCreateTransactionException e) {
+                    return false;
+                } catch (RuntimeException e) {
+                    if (rejected++ == 0) log.warn("Login audit event rejected: {}", e.getMessage());
+                    failed.increment();
+                }
+            }
+            return true;
+        } finally {
+            batch.subList(0, done).clear();
+            if (rejected > 0) log.warn("Dropped {} login audit events rejected by the database", rejected);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, LoginEvent e) throws SQLException {
+        ps.setObject(1, OffsetDateTime.ofInstant(e.occurredAt(), ZoneOffset.UTC));
+        ps.setString(2, e.flow());
+        ps.setString(3, e.outcome());
+        ps.setString(4, e.email() == null ? null : truncate(e.email().trim().toLowerCase(Locale.ROOT), MAX_EMAIL_LENGTH));
+        ps.setString(5, e.ip());
+        ps.setString(6, e.userAgent() == null ? null : truncate(e.userAgent(), MAX_USER_AGENT_LENGTH));
+        ps.setLong(7, e.latencyMicros());
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("login_events_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private record LoginEvent(Instant occurredAt, String flow, String outcome, String email,
+                              String ip, String userAgent, long latencyMicros) {}
+
+    /**
+     * One flow in progress: start time and client captured on the calling (request) thread,
+     * since asynchronous flows complete on other threads.
+     */
+    private final class Attempt {
+        private final Instant occurredAt = Instant.now();
+        private final long started = System.nanoTime();
+        private final String flow;
+        private final String email;
+        private final String ip;
+        private final String userAgent;
+
+        Attempt(String flow, String email) {
+            this.flow = flow;
+            this.email = email;
+            HttpServletRequest request = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs
+                    ? attrs.getRequest() : null;
+            // Canonical literal (no IPv6 scope) or null, so the inet cast cannot fail the batch
+            this.ip = request != null ? ClientIpResolver.canonical(clientIps.resolve(request)) : null;
+            this.userAgent = request != null ? request.getHeader(HttpHeaders.USER_AGENT) : null;
+        }
+
+        void finish(Throwable failure) {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+            enqueue(new LoginEvent(occurredAt, flow, AuthMetrics.outcome(failure), email, ip, userAgent, latencyMicros));
+        }
+    }
+}
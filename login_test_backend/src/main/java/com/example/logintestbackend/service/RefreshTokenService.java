@@ -0,0 +1,161 @@
+package com.example.logintestbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.entity.RefreshToken;
+import com.example.logintestbackend.entity.User;
+import com.example.logintestbackend.enums.Provider;
+import com.example.logintestbackend.exception.InvalidRefreshTokenException;
+import com.example.logintestbackend.repository.RefreshTokenRepository;
+import com.example.logintestbackend.security.UserSecurityEpochs;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and rotates opaque refresh tokens.
+ *
+ * Responsibilities:
+ * - Generate 256-bit random tokens and store only their SHA-256 hash.
+ * - Exchange a token exactly once for a new one in the same family (rotation).
+ * - Detect reuse of an already-exchanged token and revoke the whole family.
+ * - Honour per-user revocation ({@link UserSecurityEpochs}) without loading the user.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokens;
+    private final JwtPropertiesConfig jwtPropertiesConfig;
+    private final UserSecurityEpochs securityEpochs;
+
+    public boolean isEnabled() {
+        return jwtPropertiesConfig.getRefresh().isEnabled();
+    }
+
+    /**
+     * Start a new refresh token family for a freshly authenticated user.
+     * Runs in its own transaction so it can be called from read-only login flows.
+     *
+     * @return the raw refresh token, or null if refresh tokens are disabled
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public String issue(User user) {
+        return issue(user.getId(), user.getEmail(), user.getProvider());
+    }
+
+    /**
+     * Same as {@link #issue(User)} for callers holding only the user's identity columns.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public String issue(Long userId, String email, Provider provider) {
+        if (!isEnabled()) return null;
+        Instant expiresAt = Instant.now().plus(jwtPropertiesConfig.getRefresh().getTtl());
+        return store(UUID.randomUUID().toString(), userId, email, provider, expiresAt);
+    }
+
+    /**
+     * Exchange a refresh token for its successor.
+     * The family keeps its original expiry, so rotation never extends a session.
+     *
+     * @param rawToken token presented by the client
+     * @return the consumed token row and the new raw token
+     * @throws InvalidRefreshTokenException if unknown, expired, revoked or reused
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String rawToken) {
+        if (!isEnabled()) throw new InvalidRefreshTokenException("Refresh tokens are disabled");
+
+        String hash = hash(rawToken);
+        RefreshToken current = refreshTokens.findByTokenHash(hash)
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+
+        Instant now = Instant.now();
+        if (current.isRevoked() || !current.getExpiresAt().isAfter(now)
+                || securityEpochs.isRevoked(current.getEmail(), current.getCreatedAt())) {
+            throw new InvalidRefreshTokenException("Invalid refresh token");
+        }
+
+        // Only one exchange can succeed; a loser here means the token was already used
+        if (refreshTokens.markUsed(hash, now) != 1) {
+            refreshTokens.revokeFamily(current.getFamilyId());
+            log.warn("Refresh token reuse detected for {}, family {} revoked",
+                    current.getEmail(), current.getFamilyId());
+            throw new InvalidRefreshTokenException("Refresh token reuse detected");
+        }
+
+        String next = store(current.getFamilyId(), current.getUserId(), current.getEmail(),
+                current.getProvider(), current.getExpiresAt());
+        return new Rotation(current, next);
+    }
+
+    /**
+     * Revoke every refresh token of a user.
+     */
+    @Transactional
+    public void revokeAll(String email) {
+        refreshTokens.revokeAllForEmail(email.trim().toLowerCase());
+    }
+
+    /**
+     * Periodically delete tokens past their expiry.
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    @Transactional
+    public void purgeExpired() {
+        if (!isEnabled()) return;
+        int removed = refreshTokens.deleteExpired(Instant.now());
+        if (removed > 0) log.info("Purged {} expired refresh tokens", removed);
+    }
+
+    // ---- Internal Methods ----
+
+    private String store(String familyId, Long userId, String email,
+                         Provider provider, Instant expiresAt) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String raw = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokens.save(RefreshToken.builder()
+                .tokenHash(hash(raw))
+                .familyId(familyId)
+                .userId(userId)
+                .email(email)
+                .provider(provider)
+                .expiresAt(expiresAt)
+                .build());
+        return raw;
+    }
+
+    private static String hash(String raw) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Result of a successful rotation.
+     *
+     * @param consumed     the token that was just exchanged (carries uid, email, provider)
+     * @param refreshToken the new raw refresh token
+     */
+    public record Rotation(RefreshToken consumed, String refreshToken) {}
+}
@@ -0,0 +1,133 @@
+package com.example.logintestbackend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Service;
+
+import com.example.logintestbackend.DTO.response.IntrospectionResult;
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.security.JwtTokenUtil;
+import com.example.logintestbackend.security.TokenRevocationService;
+import com.example.logintestbackend.security.UserSecurityEpochs;
+import com.example.logintestbackend.security.VerifiedToken;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Verifies batches of access tokens on behalf of API gateways.
+ *
+ * Responsibilities:
+ * - Apply the same checks as {@code JwtAuthenticationFilter}: signature, expiry, issuer,
+ *   per-user security epoch and individual revocation.
+ * - Split large batches into fixed-size chunks and verify them in parallel on a bounded,
+ *   core-sized pool. The calling thread works on a chunk too, and when the pool queue is
+ *   full the caller runs the chunk itself, so load degrades gracefully instead of queueing.
+ * - Enforce {@code app.jwt.introspection.max-batch} and a per-token length cap.
+ */
+@Service
+public class TokenIntrospectionService {
+
+    /** Tokens per task; small enough to spread work, large enough to amortise hand-off */
+    private static final int CHUNK_SIZE = 32;
+
+    private final JwtTokenUtil jwtToken;
+    private final UserSecurityEpochs securityEpochs;
+    private final TokenRevocationService revocations;
+    private final JwtPropertiesConfig.Introspection cfg;
+    private final ThreadPoolExecutor pool;
+
+    public TokenIntrospectionService(JwtTokenUtil jwtToken,
+                                     UserSecurityEpochs securityEpochs,
+                                     TokenRevocationService revocations,
+                                     JwtPropertiesConfig jwtPropertiesConfig) {
+        this.jwtToken = jwtToken;
+        this.securityEpochs = securityEpochs;
+        this.revocations = revocations;
+        this.cfg = jwtPropertiesConfig.getIntrospection();
+
+        int threads = cfg.getParallelism();
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 16),
+                r -> {
+                    Thread t = new Thread(r, "introspect-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Introspect a batch of tokens.
+     *
+     * @param tokens raw access tokens
+     * @return one result per token, in request order
+     * @throws IllegalArgumentException if the batch exceeds the configured maximum
+     */
+    public List<IntrospectionResult> introspect(List<String> tokens) {
+        int n = tokens.size();
+        if (n > cfg.getMaxBatch()) {
+            throw new IllegalArgumentException("At most " + cfg.getMaxBatch() + " tokens per request");
+        }
+
+        IntrospectionResult[] out = new IntrospectionResult[n];
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1) {
+            verifyRange(tokens, out, 0, n);
+            return Arrays.asList(out);
+        }
+
+        // Hand chunks 1..N to the pool; the caller handles chunk 0
+        List<Future<?>> pending = new ArrayList<>(chunks - 1);
+        for (int c = 1; c < chunks; c++) {
+            int from = c * CHUNK_SIZE;
+            int to = Math.min(n, from + CHUNK_SIZE);
+            pending.add(pool.submit(() -> verifyRange(tokens, out, from, to)));
+        }
+        verifyRange(tokens, out, 0, Math.min(n, CHUNK_SIZE));
+
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Introspection interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Introspection failed", e.getCause());
+            }
+        }
+        return Arrays.asList(out);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // ---- Internal Methods ----
+
+    private void verifyRange(List<String> tokens, IntrospectionResult[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = introspectOne(tokens.get(i));
+        }
+    }
+
+    private IntrospectionResult introspectOne(String token) {
+        if (token == null || token.isEmpty() || token.length() > cfg.getMaxTokenLength()) {
+            return IntrospectionResult.INACTIVE;
+        }
+        VerifiedToken v = jwtToken.verify(token).orElse(null);
+        if (v == null || securityEpochs.isRevoked(v) || revocations.isRevoked(v)) {
+            return IntrospectionResult.INACTIVE;
+        }
+        return new IntrospectionResult(true, v.subject(), v.uid(), v.expiry().getEpochSecond());
+    }
+}
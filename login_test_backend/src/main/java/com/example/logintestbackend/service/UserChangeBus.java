@@ -0,0 +1,236 @@
+package com.example.logintestbackend.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+import com.example.logintestbackend.security.UserSecurityEpochs;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cross-instance "user changed" events over Postgres {@code LISTEN/NOTIFY}.
+ *
+ * Responsibilities:
+ * - {@link #userChanged(String)}: apply the change to this instance's caches
+ *   ({@link UserPrincipalService}, {@link KnownEmailFilter}) and {@code pg_notify} the email.
+ *   NOTIFY is transactional, so other instances only hear about committed changes.
+ * - Listen on one dedicated connection (outside the Hikari pool) and apply the same
+ *   local updates for events from other instances (our own echoes are harmless).
+ * - Detect a dead listener connection: TCP keepalive, a socket read timeout, and a
+ *   {@code SELECT 1} every {@code heartbeat-interval}; a silent half-open connection would
+ *   otherwise just look like a quiet channel.
+ * - {@link #allUsersChanged()}: the same for bulk writes (e.g. an import), as one
+ *   {@value #ALL_USERS} event instead of one per user.
+ * - {@link #securityEpochChanged}: carry a security epoch bump
+ *   ({@value #EPOCH_PREFIX}{@code <epochSecond>:<email>}) into every instance's {@link UserSecurityEpochs}.
+ * - After every (re)connect, flush the principal cache, reload security epochs and schedule
+ *   a known-email rebuild, since events sent while disconnected are lost.
+ */
+@Slf4j
+@Service
+public class UserChangeBus {
+
+    public static final String CHANNEL = "user_changes";
+
+    /** Payload meaning "any user may have changed"; not a valid email */
+    public static final String ALL_USERS = "*";
+
+    /** Payload prefix of a security epoch bump; emails never contain ':' */
+    public static final String EPOCH_PREFIX = "epoch:";
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final UserPrincipalService principals;
+    private final KnownEmailFilter knownEmails;
+    private final UserSecurityEpochs securityEpochs;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final DataSourceProperties dataSource;
+    private final AuthPropertiesConfig.UserChangeBus cfg;
+
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread listener;
+
+    public UserChangeBus(UserPrincipalService principals,
+                         KnownEmailFilter knownEmails,
+                         UserSecurityEpochs securityEpochs,
+                         JdbcTemplate jdbc,
+                         PlatformTransactionManager txManager,
+                         DataSourceProperties dataSource,
+                         AuthPropertiesConfig authPropertiesConfig) {
+        this.principals = principals;
+        this.knownEmails = knownEmails;
+        this.securityEpochs = securityEpochs;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.dataSource = dataSource;
+        this.cfg = authPropertiesConfig.getUserChangeBus();
+    }
+
+    /**
+     * Record that a user row was inserted or updated. Joins the caller's transaction
+     * if there is one, so the event is only delivered if the change commits.
+     *
+     * @param email normalised email of the changed user
+     */
+    public void userChanged(String email) {
+        applyLocally(email);
+        publish(email);
+    }
+
+    /**
+     * Record that many users were written at once: every instance drops its principal
+     * cache and rebuilds its known-email filter.
+     */
+    public void allUsersChanged() {
+        applyLocally(ALL_USERS);
+        publish(ALL_USERS);
+    }
+
+    /**
+     * Record a security epoch bump (already stored on the user row). Joins the caller's
+     * transaction like {@link #userChanged(String)}.
+     *
+     * @param email normalised email of the user
+     */
+    public void securityEpochChanged(String email, long epochSecond) {
+        String payload = EPOCH_PREFIX + epochSecond + ":" + email;
+        applyLocally(payload);
+        publish(payload);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!cfg.isEnabled()) return;
+        running = true;
+        listener = new Thread(this::listenLoop, "user-change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        closeQuietly(listenConnection);
+        if (listener != null) listener.interrupt();
+    }
+
+    // ---- Internal Methods ----
+
+    private void publish(String payload) {
+        if (!cfg.isEnabled()) return;
+        try {
+            tx.executeWithoutResult(status -> jdbc.query("select pg_notify(?, ?)",
+                    rs -> null, CHANNEL, payload));
+        } catch (RuntimeException e) {
+            // Other instances catch up at their next TTL expiry / rebuild
+            log.warn("Failed to publish user change for {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void applyLocally(String email) {
+        if (email.startsWith(EPOCH_PREFIX)) {
+            int sep = email.indexOf(':', EPOCH_PREFIX.length());
+            try {
+                String user = email.substring(sep + 1);
+                securityEpochs.apply(user, Long.parseLong(email.substring(EPOCH_PREFIX.length(), sep)));
+                principals.invalidate(user);
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed user change '{}'", email);
+            }
+            return;
+        }
+        if (ALL_USERS.equals(email)) {
+            principals.invalidateAll();
+            knownEmails.requestRebuild();
+            return;
+        }
+        knownEmails.add(email);
+        principals.invalidate(email);
+    }
+
+    private void listenLoop() {
+        long backoff = 1_000;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(dataSource.determineUrl(), connectionProperties())) {
+                listenConnection = conn;
+                conn.setAutoCommit(true);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+
+                // Anything published while we were not listening is lost: start from scratch
+                principals.invalidateAll();
+                securityEpochs.reload();
+                knownEmails.requestRebuild();
+                log.info("Listening for user changes on '{}'", CHANNEL);
+                backoff = 1_000;
+
+                long lastHeartbeat = System.nanoTime();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications((int) cfg.getPollTimeout().toMillis());
+                    if (notifications != null) {
+                        for (PGNotification n : notifications) {
+                            applyLocally(n.getParameter());
+                        }
+                    }
+                    // A round trip fails (socket timeout) where waiting for notifications cannot
+                    if (System.nanoTime() - lastHeartbeat >= cfg.getHeartbeatInterval().toNanos()) {
+                        try (Statement st = conn.createStatement()) {
+                            st.execute("SELECT 1");
+                        }
+                        lastHeartbeat = System.nanoTime();
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) return;
+                log.warn("User change listener disconnected, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            } finally {
+                listenConnection = null;
+            }
+        }
+    }
+
+    private Properties connectionProperties() {
+        Properties props = new Properties();
+        String user = dataSource.determineUsername();
+        String password = dataSource.determinePassword();
+        if (user != null) props.setProperty("user", user);
+        if (password != null) props.setProperty("password", password);
+        props.setProperty("tcpKeepAlive", "true");
+        props.setProperty("socketTimeout", Long.toString(Math.max(1, cfg.getSocketTimeout().toSeconds())));
+        props.setProperty("ApplicationName", "user-change-listener");
+        return props;
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) return;
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // shutting down
+        }
+    }
+}
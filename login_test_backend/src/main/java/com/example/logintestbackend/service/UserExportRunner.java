@@ -0,0 +1,41 @@
+package com.example.logintestbackend.service;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Export mode: when {@code app.user-export.file} is set, run {@link UserExportService}
+ * after startup and exit (status 0 on completion, 1 on failure).
+ *
+ * Usage: {@code java -jar app.jar --spring.main.web-application-type=none --app.user-export.file=users.ndjson.gz}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.user-export", name = "file")
+public class UserExportRunner implements ApplicationRunner {
+
+    private final UserExportService exportService;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int status;
+        try {
+            exportService.run();
+            status = 0;
+        } catch (Exception e) {
+            log.error("User export failed", e);
+            status = 1;
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.logintestbackend.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.UserExportPropertiesConfig;
+import com.example.logintestbackend.enums.UserFileFormat;
+import com.example.logintestbackend.util.CsvLine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streaming export of the users table to NDJSON or CSV (optionally gzipped).
+ *
+ * Responsibilities:
+ * - Read through a server-side cursor ({@code fetch-size} rows per round trip) in a
+ *   read-only transaction, with plain JDBC: no entities, no persistence context, so heap
+ *   use is the same for 10k rows or 50M. With sharding, shards are read one after the
+ *   other (rows are ordered by id within each shard).
+ * - Write each row straight to the output stream as it arrives.
+ * - Leave password hashes out unless {@code include-password-hashes} is set.
+ * - Write to {@code <file>.tmp} and rename on success, so a failed run never leaves a
+ *   truncated file that looks complete.
+ * - Log progress and rows per second.
+ */
+@Slf4j
+@Service
+public class UserExportService {
+
+    private static final List<String> COLUMNS =
+            List.of("id", "email", "name", "provider", "oauth_id", "enabled", "created_at", "updated_at");
+    private static final String PASSWORD_HASH = "password_hash";
+
+    /**
+     * Outcome of an export run.
+     *
+     * @param rows       rows written
+     * @param rowsPerSec rows written per second
+     */
+    public record Report(long rows, double rowsPerSec) {}
+
+    private final JdbcTemplate cursor;
+    private final UserShards shards;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+    private final UserExportPropertiesConfig cfg;
+
+    public UserExportService(JdbcTemplate jdbc,
+                             UserShards shards,
+                             PlatformTransactionManager txManager,
+                             ObjectMapper objectMapper,
+                             UserExportPropertiesConfig userExportPropertiesConfig) {
+        this.cfg = userExportPropertiesConfig;
+        this.shards = shards;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+
+        // pgjdbc only uses a cursor with a fetch size inside a transaction (auto-commit off)
+        this.cursor = new JdbcTemplate(jdbc.getDataSource());
+        this.cursor.setFetchSize(cfg.getFetchSize());
+    }
+
+    /**
+     * Export every user to {@code app.user-export.file}.
+     */
+    public Report run() throws IOException {
+        Path target = cfg.getFile().toAbsolutePath();
+        String fileName = target.getFileName().toString();
+        UserFileFormat format = cfg.getFormat() != null ? cfg.getFormat() : UserFileFormat.fromFileName(fileName);
+        boolean gzip = cfg.getGzip() != null ? cfg.getGzip() : fileName.endsWith(".gz");
+
+        List<String> columns = new ArrayList<>(COLUMNS);
+        if (cfg.isIncludePasswordHashes()) columns.add(PASSWORD_HASH);
+        String sql = "select " + String.join(", ", columns) + " from users order by id";
+
+        log.info("Exporting users to {} as {}{}", target, format, gzip ? " (gzip)" : "");
+        Path tmp = target.resolveSibling(fileName + ".tmp");
+        long started = System.nanoTime();
+        long rows;
+
+        // 1. Stream the cursor into the temporary file
+        try (OutputStream file = Files.newOutputStream(tmp);
+             OutputStream out = gzip ? new GZIPOutputStream(file, 64 * 1024) : file;
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+
+            RowWriter rowWriter = format == UserFileFormat.CSV
+                    ? new CsvRowWriter(writer, columns)
+                    : new NdjsonRowWriter(objectMapper.getFactory().createGenerator(writer), columns);
+            rowWriter.start();
+
+            long[] count = {0};
+            shards.forEachShard(shard -> readOnlyTx.executeWithoutResult(status -> cursor.query(sql, (RowCallbackHandler) rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++count[0] % cfg.getProgressEvery() == 0) {
+                    log.info("Export progress: {} rows, {} rows/s", count[0], Math.round(count[0] / seconds(started)));
+                }
+            })));
+            rowWriter.finish();
+            rows = count[0];
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        // 2. Publish the complete file
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Report report = new Report(rows, rows / seconds(started));
+        log.info("Export finished: {} rows to {}, {} rows/s", rows, target, Math.round(report.rowsPerSec()));
+        return report;
+    }
+
+    // ---- Internal Methods ----
+
+    private static double seconds(long startedNanos) {
+        return Math.max(1e-9, (System.nanoTime() - startedNanos) / 1e9);
+    }
+
+    private static String text(ResultSet rs, String column) throws SQLException {
+        return switch (column) {
+            case "created_at", "updated_at" -> {
+                OffsetDateTime t = rs.getObject(column, OffsetDateTime.class);
+                yield t == null ? null : t.toString();
+            }
+            default -> rs.getString(column);
+        };
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+
+        void write(ResultSet rs) throws IOException, SQLException;
+
+        void finish() throws IOException;
+    }
+
+    /** Header row, then one line per user; NULL is an empty field */
+    private record CsvRowWriter(Writer out, List<String> columns) implements RowWriter {
+        @Override
+        public void start() throws IOException {
+            out.write(String.join(",", columns));
+            out.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            StringBuilder line = new StringBuilder(160);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) line.append(',');
+                CsvLine.append(line, text(rs, columns.get(i)));
+            }
+            out.append(line).write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    /** One JSON object per line, typed id/enabled, NULL as JSON null */
+    private record NdjsonRowWriter(JsonGenerator json, List<String> columns) implements RowWriter {
+        @Override
+        public void start() {
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            json.writeStartObject();
+            for (String column : columns) {
+                switch (column) {
+                    case "id" -> json.writeNumberField(column, rs.getLong(column));
+                    case "enabled" -> json.writeBooleanField(column, rs.getBoolean(column));
+                    default -> json.writeStringField(column, text(rs, column));
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.logintestbackend.service;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import mode: when {@code app.user-import.file} is set, run {@link UserImportService}
+ * after startup and exit (status 0 on completion, 1 on failure). Rerunning the same
+ * command resumes from the checkpoint.
+ *
+ * Usage: {@code java -jar app.jar --spring.main.web-application-type=none --app.user-import.file=users.csv}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.user-import", name = "file")
+public class UserImportRunner implements ApplicationRunner {
+
+    private final UserImportService importService;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int status;
+        try {
+            importService.run();
+            status = 0;
+        } catch (Exception e) {
+            log.error("User import failed; rerun to resume from the last checkpoint", e);
+            status = 1;
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.logintestbackend.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.UserImportPropertiesConfig;
+import com.example.logintestbackend.enums.UserFileFormat;
+import com.example.logintestbackend.util.CsvLine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk import of local accounts from a legacy system (CSV with a header row, or NDJSON;
+ * either may be gzipped).
+ *
+ * Responsibilities:
+ * - Stream the source one chunk ({@code chunk-size} rows) at a time, so memory stays flat
+ *   whatever the file size.
+ * - Keep existing BCrypt hashes as they are; hash plaintext passwords on a dedicated pool
+ *   of {@code hash-threads} while the rest of the chunk is read.
+ * - Write each chunk in one transaction (one per shard when users are sharded): {@code COPY}
+ *   into a temporary staging table, then {@code insert ... on conflict do nothing} into
+ *   {@code users}. Emails that already exist (or repeat within the file) are rejected, not
+ *   overwritten.
+ * - After each commit, flush rejected rows to the rejects file and record the last committed
+ *   line in the checkpoint file; a rerun with the same source resumes after it.
+ * - Log progress and rows per second per chunk, and tell other instances to reload their
+ *   user caches when done.
+ *
+ * Records: {@code email} (required), {@code name}, and either {@code password_hash}
+ * (BCrypt, optionally {@code {bcrypt}}-prefixed) or {@code password}. NDJSON also accepts
+ * {@code passwordHash}. CSV records must not contain line breaks. If a run dies between a
+ * commit and its checkpoint, the rerun reports that chunk's rows as already existing.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+$");
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    private static final String BCRYPT_ID = "{bcrypt}";
+    private static final int MAX_EMAIL_LENGTH = 320;
+
+    private static final String CREATE_STAGE = """
+            create temp table if not exists import_users_stage (
+                line bigint, email text, password_hash text, name text
+            ) on commit delete rows
+            """;
+    private static final String COPY_STAGE =
+            "copy import_users_stage (line, email, password_hash, name) from stdin with (format csv)";
+    private static final String INSERT_FROM_STAGE = """
+            insert into users (email, password_hash, name, provider, enabled)
+            select distinct on (email) email, password_hash, name, 'LOCAL', true
+              from import_users_stage
+             order by email, line
+            on conflict do nothing
+            returning email
+            """;
+
+    /**
+     * Outcome of an import run.
+     *
+     * @param imported   rows inserted (including previous runs when resumed)
+     * @param rejected   rows written to the rejects file (including previous runs)
+     * @param lastLine   last source line committed
+     * @param rowsPerSec rows (imported + rejected) handled per second in this run
+     */
+    public record Report(long imported, long rejected, long lastLine, double rowsPerSec) {}
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final UserShards shards;
+    private final PasswordEncoder passwordEncoder;
+    private final UserChangeBus userChanges;
+    private final ObjectMapper objectMapper;
+    private final UserImportPropertiesConfig cfg;
+
+    public UserImportService(JdbcTemplate jdbc,
+                             PlatformTransactionManager txManager,
+                             UserShards shards,
+                             PasswordEncoder passwordEncoder,
+                             UserChangeBus userChanges,
+                             ObjectMapper objectMapper,
+                             UserImportPropertiesConfig userImportPropertiesConfig) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.shards = shards;
+        this.passwordEncoder = passwordEncoder;
+        this.userChanges = userChanges;
+        this.objectMapper = objectMapper;
+        this.cfg = userImportPropertiesConfig;
+    }
+
+    /**
+     * Import {@code app.user-import.file}, resuming from its checkpoint if there is one.
+     */
+    public Report run() throws IOException {
+        Path source = cfg.getFile().toAbsolutePath();
+        UserFileFormat format = cfg.getFormat() != null ? cfg.getFormat()
+                : UserFileFormat.fromFileName(source.getFileName().toString());
+        Path rejectsFile = cfg.getRejectsFile() != null ? cfg.getRejectsFile() : sibling(source, ".rejects");
+        Path checkpointFile = cfg.getCheckpointFile() != null ? cfg.getCheckpointFile() : sibling(source, ".checkpoint");
+        Function<CharSequence, String> hasher = hasher();
+
+        // 1. Resume state: lines already committed and running totals
+        Checkpoint checkpoint = Checkpoint.read(checkpointFile, source);
+        log.info("Importing {} as {} from line {} ({} imported, {} rejected so far)",
+                source, format, checkpoint.line + 1, checkpoint.imported, checkpoint.rejected);
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService hashPool = Executors.newFixedThreadPool(cfg.getHashThreads(), r -> {
+            Thread t = new Thread(r, "user-import-hash-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long started = System.nanoTime();
+        long handled = 0;
+        StandardOpenOption mode = checkpoint.line > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (BufferedReader in = open(source);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+
+            // 2. Header (CSV) and already committed lines
+            long lineNo = 0;
+            List<String> header = null;
+            if (format == UserFileFormat.CSV) {
+                String first = in.readLine();
+                if (first == null) throw new IllegalArgumentException("Empty CSV file: " + source);
+                lineNo++;
+                header = CsvLine.split(first.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                if (!header.contains("email")) throw new IllegalArgumentException("CSV header has no 'email' column");
+            }
+            while (lineNo < checkpoint.line && in.readLine() != null) lineNo++;
+
+            // 3. Read, hash and write one chunk at a time
+            List<Row> chunk = new ArrayList<>(cfg.getChunkSize());
+            String line;
+            while (true) {
+                line = in.readLine();
+                if (line != null) {
+                    lineNo++;
+                    if (line.isBlank()) continue;
+                    chunk.add(parse(lineNo, line, format, header, hasher, hashPool));
+                    if (chunk.size() < cfg.getChunkSize()) continue;
+                } else if (chunk.isEmpty()) {
+                    break;
+                }
+
+                ChunkResult result = writeChunk(chunk, rejects);
+                rejects.flush();
+                checkpoint = checkpoint.advance(lineNo, result.imported, result.rejected);
+                checkpoint.write(checkpointFile, source);
+                handled += chunk.size();
+                chunk.clear();
+
+                double elapsed = (System.nanoTime() - started) / 1e9;
+                log.info("Import progress: line {}, {} imported, {} rejected, {} rows/s",
+                        lineNo, checkpoint.imported, checkpoint.rejected, Math.round(handled / elapsed));
+                if (line == null) break;
+            }
+        } finally {
+            hashPool.shutdownNow();
+        }
+
+        // 4. Other instances reload their user caches and known-email filters
+        userChanges.allUsersChanged();
+
+        double elapsed = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+        Report report = new Report(checkpoint.imported, checkpoint.rejected, checkpoint.line, handled / elapsed);
+        log.info("Import finished: {} imported, {} rejected (see {}), {} rows/s",
+                report.imported(), report.rejected(), rejectsFile, Math.round(report.rowsPerSec()));
+        return report;
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * @return the login encoder, or a plain BCrypt encoder at {@code hash-strength} whose
+     *         hashes are tagged the way the delegating login encoder expects
+     */
+    private Function<CharSequence, String> hasher() {
+        if (cfg.getHashStrength() == null) return passwordEncoder::encode;
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cfg.getHashStrength());
+        return raw -> BCRYPT_ID + bcrypt.encode(raw);
+    }
+
+    private Row parse(long lineNo, String line, UserFileFormat format, List<String> header,
+                      Function<CharSequence, String> hasher, ExecutorService hashPool) {
+        String email;
+        String name;
+        String hash;
+        String password;
+        try {
+            if (format == UserFileFormat.CSV) {
+                List<String> fields = CsvLine.split(line);
+                if (fields.size() != header.size()) {
+                    return Row.rejected(lineNo, line, "expected " + header.size() + " fields, got " + fields.size());
+                }
+                email = field(fields, header, "email");
+                name = field(fields, header, "name");
+                hash = field(fields, header, "password_hash");
+                password = field(fields, header, "password");
+            } else {
+                JsonNode node = objectMapper.readTree(line);
+                email = text(node, "email");
+                name = text(node, "name");
+                hash = text(node, "password_hash");
+                if (hash == null) hash = text(node, "passwordHash");
+                password = text(node, "password");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return Row.rejected(lineNo, line, "malformed record: " + e.getMessage());
+        }
+
+        if (email == null) return Row.rejected(lineNo, line, "missing email");
+        email = email.trim().toLowerCase();
+        if (email.length() > MAX_EMAIL_LENGTH || !EMAIL.matcher(email).matches()) {
+            return Row.rejected(lineNo, line, "invalid email");
+        }
+        name = name == null || name.isBlank() ? null : name.trim();
+
+        if (hash != null) {
+            String bare = hash.startsWith(BCRYPT_ID) ? hash.substring(BCRYPT_ID.length()) : hash;
+            if (!BCRYPT.matcher(bare).matches()) return Row.rejected(lineNo, line, "password_hash is not BCrypt");
+            return new Row(lineNo, line, email, name, CompletableFuture.completedFuture(BCRYPT_ID + bare));
+        }
+        if (password == null || password.isEmpty()) return Row.rejected(lineNo, line, "missing password");
+
+        String raw = password;
+        return new Row(lineNo, line, email, name, CompletableFuture.supplyAsync(() -> hasher.apply(raw), hashPool));
+    }
+
+    /**
+     * Stage and insert one chunk in a single transaction; rows that were not inserted
+     * are written to the rejects file.
+     */
+    private ChunkResult writeChunk(List<Row> chunk, BufferedWriter rejects) throws IOException {
+        // 1. Wait for the chunk's hashes and build one COPY payload per shard
+        StringBuilder[] copies = new StringBuilder[shards.shardCount()];
+        for (Row row : chunk) {
+            if (row.reason != null) continue;
+            String hash;
+            try {
+                hash = row.hash.join();
+            } catch (CompletionException e) {
+                row.reason = "hashing failed: " + e.getCause().getMessage();
+                continue;
+            }
+            int shard = shards.shardOf(row.email);
+            if (copies[shard] == null) copies[shard] = new StringBuilder(chunk.size() * 128 / copies.length);
+            StringBuilder copy = copies[shard];
+            copy.append(row.lineNo).append(',');
+            CsvLine.append(copy, row.email).append(',');
+            CsvLine.append(copy, hash).append(',');
+            CsvLine.append(copy, row.name).append('\n');
+        }
+
+        // 2. COPY into each shard's staging table and move new emails into users
+        Set<String> inserted = new HashSet<>();
+        for (int shard = 0; shard < copies.length; shard++) {
+            if (copies[shard] == null) continue;
+            String copy = copies[shard].toString();
+            shards.onShard(shard, () -> tx.execute(status -> jdbc.execute((ConnectionCallback<Void>) con -> {
+                try (Statement st = con.createStatement()) {
+                    st.execute(CREATE_STAGE);
+                }
+                try {
+                    con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGE, new StringReader(copy));
+                } catch (IOException e) {
+                    throw new SQLException("COPY into staging table failed", e);
+                }
+                try (Statement st = con.createStatement()) {
+                    try (var rs = st.executeQuery(INSERT_FROM_STAGE)) {
+                        while (rs.next()) inserted.add(rs.getString(1));
+                    }
+                }
+                return null;
+            })));
+        }
+
+        // 3. Anything staged but not inserted already existed or repeated an earlier row
+        int imported = 0;
+        int rejected = 0;
+        for (Row row : chunk) {
+            if (row.reason == null && inserted.remove(row.email)) {
+                imported++;
+                continue;
+            }
+            rejected++;
+            StringBuilder out = new StringBuilder();
+            out.append(row.lineNo).append(',');
+            CsvLine.append(out, row.reason != null ? row.reason : "email already exists").append(',');
+            CsvLine.append(out, row.raw);
+            rejects.write(out.toString());
+            rejects.newLine();
+        }
+        return new ChunkResult(imported, rejected);
+    }
+
+    private static String field(List<String> fields, List<String> header, String column) {
+        int i = header.indexOf(column);
+        if (i < 0) return null;
+        String value = fields.get(i);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isTextual() && !value.asText().isEmpty() ? value.asText() : null;
+    }
+
+    private static BufferedReader open(Path source) throws IOException {
+        InputStream in = Files.newInputStream(source);
+        if (source.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static Path sibling(Path source, String suffix) {
+        return source.resolveSibling(source.getFileName() + suffix);
+    }
+
+    /** One source record; {@code reason} is set once the row is rejected */
+    private static final class Row {
+        final long lineNo;
+        final String raw;
+        final String email;
+        final String name;
+        final CompletableFuture<String> hash;
+        String reason;
+
+        Row(long lineNo, String raw, String email, String name, CompletableFuture<String> hash) {
+            this.lineNo = lineNo;
+            this.raw = raw;
+            this.email = email;
+            this.name = name;
+            this.hash = hash;
+        }
+
+        static Row rejected(long lineNo, String raw, String reason) {
+            Row row = new Row(lineNo, raw, null, null, null);
+            row.reason = reason;
+            return row;
+        }
+    }
+
+    private record ChunkResult(int imported, int rejected) {}
+
+    /**
+     * Last committed source line plus running totals, stored as a properties file and
+     * replaced atomically after every chunk.
+     */
+    private record Checkpoint(long line, long imported, long rejected) {
+
+        static Checkpoint read(Path file, Path source) throws IOException {
+            if (!Files.exists(file)) return new Checkpoint(0, 0, 0);
+            Properties p = new Properties();
+            try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                p.load(in);
+            }
+            if (!source.toString().equals(p.getProperty("source"))) {
+                throw new IllegalStateException("Checkpoint " + file + " belongs to " + p.getProperty("source")
+                        + "; delete it to start over");
+            }
+            return new Checkpoint(Long.parseLong(p.getProperty("line")),
+                    Long.parseLong(p.getProperty("imported")),
+                    Long.parseLong(p.getProperty("rejected")));
+        }
+
+        Checkpoint advance(long toLine, int newlyImported, int newlyRejected) {
+            return new Checkpoint(toLine, imported + newlyImported, rejected + newlyRejected);
+        }
+
+        void write(Path file, Path source) {
+            Properties p = new Properties();
+            p.setProperty("source", source.toString());
+            p.setProperty("line", Long.toString(line));
+            p.setProperty("imported", Long.toString(imported));
+            p.setProperty("rejected", Long.toString(rejected));
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                try (var out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    p.store(out, "user import progress");
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write checkpoint " + file, e);
+            }
+        }
+    }
+}
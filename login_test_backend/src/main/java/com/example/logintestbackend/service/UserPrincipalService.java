@@ -1,21 +1,80 @@
 package com.example.logintestbackend.service;
 
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import com.example.logintestbackend.entity.User;
+import com.example.logintestbackend.DTO.projection.AuthUserView;
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+import com.example.logintestbackend.config.ConnectionBulkhead;
+import com.example.logintestbackend.config.ReplicaRoutingDataSource;
 import com.example.logintestbackend.enums.Provider;
 import com.example.logintestbackend.exception.EmailNotFoundException;
 import com.example.logintestbackend.repository.UserRepository;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
+/**
+ * Loads users for Spring Security (JWT filter, local login provider).
+ *
+ * Responsibilities:
+ * - Map a user row to a Spring Security {@link UserDetails}.
+ * - Cache the auth-relevant fields (email, hash, provider, enabled) per normalised email,
+ *   bounded by {@code app.auth.principal-cache.ttl} and {@code max-entries}.
+ * - Single-flight loading: concurrent misses on the same email share one query.
+ * - Drop entries on {@link #invalidate(String)}, called by every path that writes a user.
+ * - With read replicas, re-check a miss on the primary: the user may have registered
+ *   moments ago and not be replayed yet.
+ * - Query through the {@code AUTH_READ} connection bulkhead.
+ *
+ * A fresh {@link UserDetails} is built per call, since Spring Security erases credentials
+ * on the instances it is handed.
+ */
 @Service
-@RequiredArgsConstructor
 public class UserPrincipalService implements UserDetailsService {
 
     private final UserRepository users;
+    private final ReplicaRoutingDataSource readRouting;
+    private final boolean cacheEnabled;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserPrincipalService(UserRepository users,
+                                ObjectProvider<ReplicaRoutingDataSource> readRouting,
+                                AuthPropertiesConfig authPropertiesConfig,
+                                MeterRegistry registry) {
+        this.users = users;
+        this.readRouting = readRouting.getIfAvailable();
+        AuthPropertiesConfig.PrincipalCache cfg = authPropertiesConfig.getPrincipalCache();
+        this.cacheEnabled = cfg.isEnabled();
+        this.ttlNanos = cfg.getTtl().toNanos();
+        this.maxEntries = cfg.getMaxEntries();
+
+        FunctionCounter.builder("auth.principal_cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("auth.principal_cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(registry);
+        Gauge.builder("auth.principal_cache.hit_ratio", this, UserPrincipalService::hitRatio).register(registry);
+        Gauge.builder("auth.principal_cache.size", cache, ConcurrentHashMap::size).register(registry);
+    }
 
     /**
      * Loads a user by their email address.
@@ -28,27 +87,140 @@ public class UserPrincipalService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String email) throws EmailNotFoundException {
         // Normalize email
-        User u = users.findByEmail(email.toLowerCase())
-                .orElseThrow(() -> new EmailNotFoundException("Email not found: " + email));
+        Snapshot u = snapshot(email.trim().toLowerCase());
 
         // Block local login for Google accounts without password
-        if (u.getProvider() == Provider.GOOGLE && (u.getPasswordHash() == null || u.getPasswordHash().isBlank())) {
+        if (u.provider() == Provider.GOOGLE && (u.passwordHash() == null || u.passwordHash().isBlank())) {
             throw new EmailNotFoundException("Use Google Sign-In for this account.");
         }
 
         // Ensure password exists
-        String bcrypt = u.getPasswordHash();
+        String bcrypt = u.passwordHash();
         if (bcrypt == null || bcrypt.isBlank()) {
             throw new EmailNotFoundException("Password not set for email: " + email);
         }
 
         // Return Spring Security compatible user
         return org.springframework.security.core.userdetails.User
-                .withUsername(u.getEmail())
+                .withUsername(u.email())
                 .password(bcrypt)
-                .disabled(!u.isEnabled())
+                .disabled(!u.enabled())
                 .accountLocked(false)
                 .credentialsExpired(false)
                 .build();
     }
+
+    /**
+     * Forget the cached copy of a user after it was written.
+     * Inside a transaction the entry is dropped again after commit, so a concurrent
+     * reload of the pre-commit row does not linger for a whole TTL.
+     *
+     * @param email user email (normalised here)
+     */
+    public void invalidate(String email) {
+        if (email == null) return;
+        String key = email.trim().toLowerCase();
+        cache.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Forget every cached user.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * @return share of lookups answered from the cache since startup
+     */
+    public double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    // ---- Internal Methods ----
+
+    private Snapshot snapshot(String email) {
+        if (!cacheEnabled) return load(email);
+
+        long now = System.nanoTime();
+        Entry cached = cache.get(email);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            hits.increment();
+            return await(cached.value());
+        }
+
+        // Miss or stale: the thread that installs the entry runs the query, others wait on it
+        misses.increment();
+        Entry mine = new Entry(new CompletableFuture<>(), now);
+        Entry winner = cached == null ? cache.putIfAbsent(email, mine)
+                                      : (cache.replace(email, cached, mine) ? null : cache.get(email));
+        if (winner != null && winner != mine) {
+            return await(winner.value());
+        }
+
+        try {
+            mine.value().complete(load(email));
+        } catch (RuntimeException e) {
+            cache.remove(email, mine); // never cache failures (e.g. unknown email)
+            mine.value().completeExceptionally(e);
+        }
+        if (cache.size() > maxEntries) evictIfNeeded();
+        return await(mine.value());
+    }
+
+    private Snapshot load(String email) {
+        Optional<AuthUserView> found = ConnectionBulkhead.AUTH_READ.call(() -> {
+            Optional<AuthUserView> view = users.findAuthViewByEmail(email);
+            if (view.isEmpty() && readRouting != null) {
+                view = readRouting.onPrimary(() -> users.findAuthViewByEmail(email));
+            }
+            return view;
+        });
+        AuthUserView u = found.orElseThrow(() -> new EmailNotFoundException("Email not found: " + email));
+        return new Snapshot(u.email(), u.passwordHash(), u.provider(), u.enabled());
+    }
+
+    /**
+     * Bring the cache back under 90% of its cap: expired entries first, then arbitrary ones.
+     * Only one thread sweeps at a time; others skip instead of waiting.
+     */
+    private void evictIfNeeded() {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            long now = System.nanoTime();
+            int target = maxEntries * 9 / 10;
+            cache.values().removeIf(e -> now - e.loadedAt() >= ttlNanos);
+            Iterator<Entry> it = cache.values().iterator();
+            while (cache.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static Snapshot await(CompletableFuture<Snapshot> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /** Auth-relevant, immutable view of a user row */
+    private record Snapshot(String email, String passwordHash, Provider provider, boolean enabled) {}
+
+    private record Entry(CompletableFuture<Snapshot> value, long loadedAt) {}
 }
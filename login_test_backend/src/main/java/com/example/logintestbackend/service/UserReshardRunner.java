@@ -0,0 +1,42 @@
+package com.example.logintestbackend.service;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resharding mode: when {@code app.sharding.reshard} is set, run {@link UserReshardService}
+ * after startup and exit (status 0 on completion, 1 on failure). An interrupted run is
+ * resumed by running it again.
+ *
+ * Usage: {@code java -jar app.jar --spring.main.web-application-type=none --app.sharding.reshard=true}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.sharding", name = "reshard", havingValue = "true")
+public class UserReshardRunner implements ApplicationRunner {
+
+    private final UserReshardService reshardService;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int status;
+        try {
+            reshardService.run();
+            status = 0;
+        } catch (Exception e) {
+            log.error("Resharding failed; rerun to finish moving users", e);
+            status = 1;
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.logintestbackend.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import com.example.logintestbackend.config.ShardRoutingDataSource;
+import com.example.logintestbackend.config.ShardingPropertiesConfig;
+import com.example.logintestbackend.enums.Provider;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offline resharding: moves users between shards after shards are added (or before the
+ * trailing ones are removed). The application must be stopped while it runs.
+ *
+ * Responsibilities:
+ * - Compute a new bucket map over the first {@code reshard-target-shards} shards that keeps
+ *   every bucket it can where it is, so only about {@code 1/N} of the rows move when
+ *   growing from {@code N-1} to {@code N} shards.
+ * - Stream each shard's users and copy those whose bucket moves to their new shard (ids are
+ *   kept), then delete them from the old one. Rows are inserted before they are deleted,
+ *   and inserts ignore rows already present, so an interrupted run can simply be rerun.
+ * - Rebuild the OAuth directory from the shards, then save the new bucket map.
+ * - Log progress and rows per second.
+ */
+@Slf4j
+@Service
+public class UserReshardService {
+
+    private static final String COLUMNS =
+            "id, email, password_hash, name, provider, oauth_id, enabled, created_at, updated_at";
+    private static final int COLUMN_COUNT = 9;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * Outcome of a resharding run.
+     *
+     * @param scanned    rows read across all shards
+     * @param moved      rows moved to another shard
+     * @param rowsPerSec rows scanned per second
+     */
+    public record Report(long scanned, long moved, double rowsPerSec) {}
+
+    private final ShardRoutingDataSource routing;
+    private final UserShards shards;
+    private final ShardingPropertiesConfig cfg;
+
+    public UserReshardService(ObjectProvider<ShardRoutingDataSource> routing,
+                              UserShards shards,
+                              ShardingPropertiesConfig shardingPropertiesConfig) {
+        this.routing = routing.getIfAvailable();
+        this.shards = shards;
+        this.cfg = shardingPropertiesConfig;
+    }
+
+    public Report run() throws SQLException {
+        if (routing == null) {
+            throw new IllegalStateException("Resharding requires app.sharding.enabled=true");
+        }
+        int shardCount = routing.shardCount();
+        int target = cfg.getReshardTargetShards() != null ? cfg.getReshardTargetShards() : shardCount;
+        if (target > shardCount) {
+            throw new IllegalStateException("reshard-target-shards is " + target + " but only "
+                    + shardCount + " shards are configured");
+        }
+
+        // 1. New placement, moving as few buckets as possible
+        int[] current = shards.bucketMap();
+        int[] next = rebalance(current, target);
+        int movedBuckets = 0;
+        for (int b = 0; b < UserShards.BUCKETS; b++) if (current[b] != next[b]) movedBuckets++;
+        log.info("Resharding users over {} of {} shards: {} of {} buckets move",
+                target, shardCount, movedBuckets, UserShards.BUCKETS);
+
+        // 2. Move rows; every shard is scanned, so rows left behind by an interrupted run are found too
+        long started = System.nanoTime();
+        long scanned = 0;
+        long moved = 0;
+        for (int source = 0; source < shardCount; source++) {
+            long[] counts = moveRows(source, next, started);
+            scanned += counts[0];
+            moved += counts[1];
+        }
+
+        // 3. OAuth directory, then the map itself (instances read it at startup)
+        rebuildOauthDirectory();
+        shards.saveBucketMap(next);
+
+        Report report = new Report(scanned, moved, scanned / seconds(started));
+        log.info("Resharding finished: {} rows scanned, {} moved, {} rows/s",
+                scanned, moved, Math.round(report.rowsPerSec()));
+        return report;
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * Spread buckets evenly over shards {@code 0..target-1}, keeping each bucket on its
+     * current shard unless that shard is over its share or being drained.
+     */
+    static int[] rebalance(int[] current, int target) {
+        int[] quota = new int[target];
+        for (int s = 0; s < target; s++) quota[s] = UserShards.BUCKETS / target + (s < UserShards.BUCKETS % target ? 1 : 0);
+
+        int[] next = new int[current.length];
+        List<Integer> homeless = new ArrayList<>();
+        for (int b = 0; b < current.length; b++) {
+            int s = current[b];
+            if (s < target && quota[s] > 0) {
+                next[b] = s;
+                quota[s]--;
+            } else {
+                homeless.add(b);
+            }
+        }
+        int s = 0;
+        for (int b : homeless) {
+            while (quota[s] == 0) s++;
+            next[b] = s;
+            quota[s]--;
+        }
+        return next;
+    }
+
+    /**
+     * @return {rows scanned, rows moved} for one source shard
+     */
+    private long[] moveRows(int source, int[] next, long started) throws SQLException {
+        long scanned = 0;
+        long moved = 0;
+        List<List<Object[]>> outgoing = new ArrayList<>();
+        for (int i = 0; i < routing.shardCount(); i++) outgoing.add(new ArrayList<>());
+
+        // Reads through a cursor on its own connection; moves commit on separate connections
+        try (Connection con = routing.shard(source).getConnection()) {
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            try (PreparedStatement st = con.prepareStatement("select " + COLUMNS + " from users")) {
+                st.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        scanned++;
+                        int dest = next[UserShards.bucketOf(rs.getString("email"))];
+                        if (dest != source) {
+                            Object[] row = new Object[COLUMN_COUNT];
+                            for (int c = 0; c < COLUMN_COUNT; c++) row[c] = rs.getObject(c + 1);
+                            List<Object[]> batch = outgoing.get(dest);
+                            batch.add(row);
+                            if (batch.size() >= BATCH_SIZE) moved += move(source, dest, batch);
+                        }
+                        if (scanned % 100_000 == 0) {
+                            log.info("Reshard progress: shard {}, {} rows scanned, {} moved, {} rows/s",
+                                    source, scanned, moved, Math.round(scanned / seconds(started)));
+                        }
+                    }
+                }
+            }
+            con.rollback();
+        }
+        for (int dest = 0; dest < outgoing.size(); dest++) {
+            if (!outgoing.get(dest).isEmpty()) moved += move(source, dest, outgoing.get(dest));
+        }
+        log.info("Shard {}: {} rows scanned, {} moved out", source, scanned, moved);
+        return new long[]{scanned, moved};
+    }
+
+    /**
+     * Copy a batch to {@code dest} and commit, then delete from {@code source} the rows that
+     * are now on {@code dest} and commit. A row that conflicts with a different user on
+     * {@code dest} (same email or OAuth id) is left in place and reported.
+     */
+    private int move(int source, int dest, List<Object[]> batch) throws SQLException {
+        Long[] ids = batch.stream().map(row -> ((Number) row[0]).longValue()).toArray(Long[]::new);
+        String placeholders = "?" + ", ?".repeat(COLUMN_COUNT - 1);
+        List<Long> copied = new ArrayList<>(batch.size());
+        try (Connection con = routing.shard(dest).getConnection()) {
+            try (PreparedStatement st = con.prepareStatement(
+                    "insert into users (" + COLUMNS + ") values (" + placeholders + ") on conflict do nothing")) {
+                for (Object[] row : batch) {
+                    for (int c = 0; c < COLUMN_COUNT; c++) st.setObject(c + 1, row[c]);
+                    st.addBatch();
+                }
+                st.executeBatch();
+            }
+            try (PreparedStatement st = con.prepareStatement("select id from users where id = any(?)")) {
+                st.setArray(1, con.createArrayOf("bigint", ids));
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) copied.add(rs.getLong(1));
+                }
+            }
+            commit(con);
+        }
+
+        try (Connection con = routing.shard(source).getConnection();
+             PreparedStatement st = con.prepareStatement("delete from users where id = any(?)")) {
+            st.setArray(1, con.createArrayOf("bigint", copied.toArray()));
+            st.executeUpdate();
+            commit(con);
+        }
+
+        if (copied.size() < batch.size()) {
+            log.warn("{} users could not be moved from shard {} to shard {} (conflicting email or OAuth id)",
+                    batch.size() - copied.size(), source, dest);
+        }
+        batch.clear();
+        return copied.size();
+    }
+
+    private void rebuildOauthDirectory() throws SQLException {
+        long linked = 0;
+        for (int i = 0; i < routing.shardCount(); i++) {
+            try (Connection con = routing.shard(i).getConnection()) {
+                con.setAutoCommit(false);
+                con.setReadOnly(true);
+                try (PreparedStatement st = con.prepareStatement(
+                        "select provider, oauth_id, email from users where oauth_id is not null")) {
+                    st.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            shards.recordOauth(Provider.valueOf(rs.getString(1)), rs.getString(2), rs.getString(3));
+                            linked++;
+                        }
+                    }
+                }
+                con.rollback();
+            }
+        }
+        log.info("OAuth directory rebuilt: {} linked accounts", linked);
+    }
+
+    private static void commit(Connection con) throws SQLException {
+        if (!con.getAutoCommit()) con.commit();
+    }
+
+    private static double seconds(long startedNanos) {
+        return Math.max(1e-9, (System.nanoTime() - startedNanos) / 1e9);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.logintestbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.logintestbackend.config.ShardRoutingDataSource;
+import com.example.logintestbackend.enums.Provider;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Placement of users on shards ({@code app.sharding}); a single implicit shard when
+ * sharding is off, so callers can iterate shards unconditionally.
+ *
+ * Responsibilities:
+ * - Hash each normalised email into one of {@link #BUCKETS} buckets, and map buckets to
+ *   shards through {@code user_shard_buckets} on the main database. Resharding moves whole
+ *   buckets, so only the rows of reassigned buckets change shard.
+ * - Keep the OAuth directory ({@code user_oauth_directory}: provider + subject to email),
+ *   so lookups by OAuth id reach a single shard.
+ * - Run work against one shard ({@link #onShard}) or every shard ({@link #forEachShard}).
+ *
+ * The bucket map is read once at startup; it only changes through the offline
+ * resharding tool ({@link UserReshardService}), after which instances are restarted.
+ */
+@Slf4j
+@Service
+public class UserShards {
+
+    /** Fixed bucket count: changing it (or the hash) would misplace every existing row */
+    public static final int BUCKETS = 1024;
+
+    private final ShardRoutingDataSource routing;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    private volatile int[] bucketToShard;
+
+    public UserShards(ObjectProvider<ShardRoutingDataSource> routing,
+                      JdbcTemplate jdbc,
+                      PlatformTransactionManager txManager) {
+        this.routing = routing.getIfAvailable();
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * Load the bucket map, creating it with every bucket on shard 0 on first use
+     * (shard 0 is typically the existing database; reshard to spread the rows).
+     */
+    @PostConstruct
+    public void loadBucketMap() {
+        if (routing == null) return;
+        tx.executeWithoutResult(status -> jdbc.batchUpdate(
+                "insert into user_shard_buckets (bucket, shard) values (?, ?) on conflict do nothing",
+                bucketRows(new int[BUCKETS])));
+
+        int[] map = new int[BUCKETS];
+        Arrays.fill(map, -1);
+        jdbc.query("select bucket, shard from user_shard_buckets", rs -> {
+            map[rs.getInt(1)] = rs.getInt(2);
+        });
+        for (int shard : map) {
+            if (shard < 0 || shard >= routing.shardCount()) {
+                throw new IllegalStateException("Shard map references shard " + shard + " but "
+                        + routing.shardCount() + " shards are configured; configure it or reshard");
+            }
+        }
+        bucketToShard = map;
+        log.info("User sharding enabled: {} shards, {} buckets", routing.shardCount(), BUCKETS);
+    }
+
+    public boolean isEnabled() {
+        return routing != null;
+    }
+
+    /**
+     * @return configured shards (1 when sharding is off)
+     */
+    public int shardCount() {
+        return routing == null ? 1 : routing.shardCount();
+    }
+
+    /**
+     * @param email normalised email
+     * @return the email's bucket (FNV-1a 64 with a murmur finaliser)
+     */
+    public static int bucketOf(String email) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) BUCKETS);
+    }
+
+    /**
+     * @param email normalised email
+     * @return the shard holding (or that would hold) this user
+     */
+    public int shardOf(String email) {
+        return routing == null ? 0 : bucketToShard[bucketOf(email)];
+    }
+
+    /**
+     * Run {@code work} with its transactions on one shard.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return routing == null ? work.get() : ShardRoutingDataSource.call(shard, work);
+    }
+
+    /**
+     * Run {@code work} once per shard, with its transactions on that shard.
+     */
+    public void forEachShard(IntConsumer work) {
+        for (int i = 0; i < shardCount(); i++) {
+            int shard = i;
+            onShard(shard, () -> {
+                work.accept(shard);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return the email of the account linked to this OAuth identity, if known
+     */
+    public Optional<String> emailForOauth(Provider provider, String oauthId) {
+        return jdbc.query("select email from user_oauth_directory where provider = ? and oauth_id = ?",
+                        (rs, i) -> rs.getString(1), provider.name(), oauthId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Record (or move) an OAuth identity's account email. Joins the caller's transaction
+     * on the main database if there is one.
+     */
+    public void recordOauth(Provider provider, String oauthId, String email) {
+        tx.executeWithoutResult(status -> jdbc.update("""
+                insert into user_oauth_directory (provider, oauth_id, email) values (?, ?, ?)
+                on conflict (provider, oauth_id) do update set email = excluded.email
+                 where user_oauth_directory.email <> excluded.email
+                """, provider.name(), oauthId, email));
+    }
+
+    /**
+     * @return a copy of the current bucket to shard map
+     */
+    public int[] bucketMap() {
+        return bucketToShard.clone();
+    }
+
+    /**
+     * Replace the bucket map (resharding tool only).
+     */
+    public void saveBucketMap(int[] map) {
+        tx.executeWithoutResult(status -> jdbc.batchUpdate("""
+                insert into user_shard_buckets (bucket, shard) values (?, ?)
+                on conflict (bucket) do update set shard = excluded.shard
+                """, bucketRows(map)));
+        bucketToShard = map.clone();
+    }
+
+    // ---- Internal Methods ----
+
+    private static List<Object[]> bucketRows(int[] map) {
+        List<Object[]> rows = new ArrayList<>(map.length);
+        for (int bucket = 0; bucket < map.length; bucket++) rows.add(new Object[]{bucket, map[bucket]});
+        return rows;
+    }
+}
@@ -1,23 +1,40 @@
 package com.example.logintestbackend.service.impl;
 
+import com.example.logintestbackend.DTO.projection.AuthUserView;
+import com.example.logintestbackend.DTO.projection.GoogleUpsertResult;
 import com.example.logintestbackend.DTO.request.LoginRequest;
+import com.example.logintestbackend.DTO.request.RefreshRequest;
 import com.example.logintestbackend.DTO.request.RegisterRequest;
 import com.example.logintestbackend.DTO.response.AuthResponse;
-import com.example.logintestbackend.entity.User;
+import com.example.logintestbackend.config.ConnectionBulkhead;
+import com.example.logintestbackend.entity.RefreshToken;
 import com.example.logintestbackend.enums.Provider;
 import com.example.logintestbackend.exception.EmailAlreadyExistsException;
 import com.example.logintestbackend.exception.EmailNotFoundException;
 import com.example.logintestbackend.repository.UserRepository;
 import com.example.logintestbackend.security.JwtTokenUtil;
+import com.example.logintestbackend.security.PasswordHashingExecutor;
 import com.example.logintestbackend.security.TokenBundle;
+import com.example.logintestbackend.security.TokenRevocationService;
+import com.example.logintestbackend.security.VerifiedToken;
+import com.example.logintestbackend.service.AuthMetrics;
 import com.example.logintestbackend.service.AuthService;
+import com.example.logintestbackend.service.GoogleAccountService;
+import com.example.logintestbackend.service.KnownEmailFilter;
+import com.example.logintestbackend.service.LoginAuditLog;
+import com.example.logintestbackend.service.RefreshTokenService;
+import com.example.logintestbackend.service.UserChangeBus;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.logintestbackend.service.AuthMetrics.GOOGLE;
+import static com.example.logintestbackend.service.AuthMetrics.LOGIN;
+import static com.example.logintestbackend.service.AuthMetrics.REGISTER;
 
 import lombok.*;
 
@@ -31,6 +48,7 @@ import lombok.*;
  * 
  * This service is responsible for issuing JWT tokens and
  * ensuring accounts are linked correctly between local and OAuth providers.
+ * Every attempt is recorded in the login audit log ({@link LoginAuditLog}).
  */
 @Service
 @RequiredArgsConstructor
@@ -38,81 +56,108 @@ public class AuthServiceImpl implements AuthService {
 
     private final UserRepository userRepo;
     private final JwtTokenUtil jwtToken;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashing;
+    private final TokenRevocationService revocations;
+    private final RefreshTokenService refreshTokens;
+    private final AuthMetrics metrics;
+    private final KnownEmailFilter knownEmails;
+    private final UserChangeBus userChanges;
+    private final GoogleAccountService googleAccounts;
+    private final LoginAuditLog auditLog;
 
 
     /**
      * Authenticate a user with email and password.
-     * Validates credentials and issues a JWT token.
+     * The user lookup runs on the calling thread; password verification runs on the
+     * dedicated hashing pool and the token is issued once it completes.
      *
      * @param request contains email and password
-     * @return AuthResponse with token and user info
+     * @return future AuthResponse with token and user info
      */
     @Override
     @Transactional(readOnly = true)
-    public AuthResponse login(LoginRequest request) {
-        final String email = request.getEmail().trim().toLowerCase();
-
-        // Load user
-        User user = userRepo.findByEmail(email)
-                .orElseThrow(() -> new EmailNotFoundException("User with email " + email + " not found"));
-
-        // Disallow local login for Google-only accounts
-        if (user.getPasswordHash() == null ||
-            !passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-            throw new IllegalArgumentException("Invalid email or password");
-        }
-
-        // Verify password
-        if (user.getPasswordHash() == null ||
-            !passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-            throw new IllegalArgumentException("Invalid email or password");
-        }
-
-        TokenBundle tokens = issueTokens(user);
-        return toResponse(user, tokens.getAccessToken());
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        return auditLog.trackAsync(LOGIN, request.getEmail(), () -> metrics.flowAsync(LOGIN, () -> {
+            final String email = metrics.stage(LOGIN, "normalise_email",
+                    () -> request.getEmail().trim().toLowerCase());
+
+            // Load user (always from the database: the known-email filter may lag other instances)
+            AuthUserView user = metrics.stage(LOGIN, "find_user",
+                            () -> ConnectionBulkhead.AUTH_READ.call(() -> userRepo.findAuthViewByEmail(email)))
+                    .orElseThrow(() -> new EmailNotFoundException("User with email " + email + " not found"));
+
+            // Disallow local login for Google-only accounts
+            if (user.passwordHash() == null) {
+                throw new IllegalArgumentException("Invalid email or password");
+            }
+
+            // Verify password (once) off the request thread; token writes continue on the I/O pool
+            return metrics.stageAsync(LOGIN, "verify_password",
+                            () -> passwordHashing.matches(request.getPassword(), user.passwordHash()))
+                    .thenApplyAsync(matches -> {
+                        if (!matches) throw new IllegalArgumentException("Invalid email or password");
+
+                        // Bring the stored hash to the current cost, off the response path
+                        passwordHashing.upgradeIfNeeded(request.getPassword(), user.passwordHash(),
+                                next -> ConnectionBulkhead.ACCOUNT_WRITE.call(() -> {
+                                    userRepo.replacePasswordHash(user.email(), user.passwordHash(), next);
+                                    userChanges.userChanged(email);
+                                    return null;
+                                }));
+
+                        TokenBundle tokens = issueTokens(LOGIN, user.id(), user.email(), user.provider());
+                        return metrics.stage(LOGIN, "build_response",
+                                () -> toResponse(user.id(), user.email(), user.name(), tokens));
+                    }, passwordHashing.io());
+        }));
     }
 
     /**
      * Register a new local user (email + password).
-     * Creates the account, encodes the password, and issues a JWT token.
+     * Encodes the password on the hashing pool, creates the account with a single
+     * {@code INSERT ... ON CONFLICT DO NOTHING}, and issues a JWT token.
      *
      * @param request contains email, password, and name
-     * @return AuthResponse with token and user info
+     * @return future AuthResponse with token and user info
      */
     @Override
-    @Transactional
-    public AuthResponse register(RegisterRequest request) {
-        final String email = request.getEmail().trim().toLowerCase();
-
-        // Ensure email is unique
-        if (userRepo.findByEmail(email).isPresent()) {
-            throw new EmailAlreadyExistsException("Email already in use: " + email);
-        }
-
-        // Encode password with BCrypt
-        String bcrypt = passwordEncoder.encode(request.getPassword());
-
-        // Build and save new user
-        User user = User.builder()
-                .email(email)
-                .passwordHash(bcrypt)
-                .name(request.getName())
-                .provider(Provider.LOCAL)
-                .enabled(true)
-                .build();
-
-        user = userRepo.save(user);
-
-        // Issue token
-        TokenBundle tokens = issueTokens(user);
-        return toResponse(user, tokens.getAccessToken());
+    public CompletableFuture<AuthResponse> register(RegisterRequest request) {
+        return auditLog.trackAsync(REGISTER, request.getEmail(), () -> metrics.flowAsync(REGISTER, () -> {
+            final String email = metrics.stage(REGISTER, "normalise_email",
+                    () -> request.getEmail().trim().toLowerCase());
+
+            // Fail fast before spending a hash on a likely duplicate; skipped when the
+            // known-email filter says the email is definitely new
+            if (knownEmails.mightExist(email)
+                    && metrics.stage(REGISTER, "find_user",
+                            () -> ConnectionBulkhead.AUTH_READ.call(() -> userRepo.existsByEmail(email)))) {
+                throw new EmailAlreadyExistsException("Email already in use: " + email);
+            }
+
+            // Encode password with BCrypt, then insert atomically (the unique index decides races)
+            // on the I/O pool, so hashing workers never hold a database connection
+            return metrics.stageAsync(REGISTER, "hash_password", () -> passwordHashing.encode(request.getPassword()))
+                    .thenApplyAsync(bcrypt -> {
+                        Long id = ConnectionBulkhead.ACCOUNT_WRITE.call(() -> {
+                            Long created = metrics.stage(REGISTER, "save_user",
+                                    () -> userRepo.insertLocalIfAbsent(email, bcrypt, request.getName()))
+                                    .orElseThrow(() -> new EmailAlreadyExistsException("Email already in use: " + email));
+                            userChanges.userChanged(email);
+                            return created;
+                        });
+
+                        // Issue token
+                        TokenBundle tokens = issueTokens(REGISTER, id, email, Provider.LOCAL);
+                        return metrics.stage(REGISTER, "build_response",
+                                () -> toResponse(id, email, request.getName(), tokens));
+                    }, passwordHashing.io());
+        }));
     }
 
     /**
      * Handle login/registration with Google OAuth2.
-     * If the user already exists (by oauthId or email), update their provider info.
-     * Otherwise, create a new Google-linked account.
+     * If the user already exists (by oauthId or email), update their provider info
+     * when it differs. Otherwise, create a new Google-linked account.
      *
      * @param principal Google OAuth2 principal (with sub, email, name)
      * @param token     ID token provided by Google
@@ -121,36 +166,71 @@ public class AuthServiceImpl implements AuthService {
     @Override
     @Transactional
     public AuthResponse googleLogin(OAuth2User principal, String token) {
-        String sub   = principal.getAttribute("sub");   // Google user unique ID
-        String email = principal.getAttribute("email");
-        String name  = principal.getAttribute("name");
-
-        if (sub == null || email == null) {
-            throw new IllegalArgumentException("Google user missing sub/email");
-        }
-
-        final String norm = email.trim().toLowerCase();
-
-        // Try to find user by oauthId, fallback to email
-        User user = userRepo.findByOauthIdAndProvider(sub, Provider.GOOGLE)
-                .orElseGet(() -> userRepo.findByEmail(norm).orElse(null));
-
-        // If no user exists, create a new one
-        if (user == null) {
-            user = User.createGoogle(norm, name, sub);
-        } else {
-            // Update existing user with Google details
-            user.setProvider(Provider.GOOGLE);
-            user.setOauthId(sub);
-            if (user.getName() == null) user.setName(name);
-            user.setEnabled(true);
-        }
-
-        // Persist changes
-        user = userRepo.save(user);
-
-        // Return auth response with Google token
-        return toResponse(user, token);
+        return auditLog.track(GOOGLE, principal.getAttribute("email"), () -> metrics.flow(GOOGLE, () -> {
+            String sub   = principal.getAttribute("sub");   // Google user unique ID
+            String email = principal.getAttribute("email");
+            String name  = principal.getAttribute("name");
+
+            if (sub == null || email == null) {
+                throw new IllegalArgumentException("Google user missing sub/email");
+            }
+
+            final String norm = metrics.stage(GOOGLE, "normalise_email", () -> email.trim().toLowerCase());
+
+            // Link by oauthId, fallback to email, or create (one statement; no write if unchanged)
+            GoogleUpsertResult user = googleAccounts.link(sub, norm, name);
+
+            // Return auth response with Google token
+            return metrics.stage(GOOGLE, "build_response",
+                    () -> toResponse(user.getId(), user.getEmail(), user.getName(), token));
+        }));
+    }
+
+    /**
+     * Rotate a refresh token and mint a new access token from the claims stored with it.
+     * No password check and no user reload.
+     *
+     * @param request contains the current refresh token
+     * @return AuthResponse with the new access and refresh tokens
+     */
+    @Override
+    public AuthResponse refresh(RefreshRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokens.rotate(request.getRefreshToken());
+        RefreshToken consumed = rotation.consumed();
+
+        String accessToken = jwtToken.generateToken(consumed.getEmail(), Map.of(
+                "provider", consumed.getProvider().name(),
+                "uid", consumed.getUserId()
+        ));
+
+        AuthResponse res = new AuthResponse();
+        res.setAccessToken(accessToken);
+        res.setRefreshToken(rotation.refreshToken());
+        res.setTokenType("Bearer");
+        res.setId(consumed.getUserId());
+        res.setEmail(consumed.getEmail());
+        return res;
+    }
+
+    /**
+     * Revoke the caller's current access token.
+     *
+     * @param token verified token taken from the SecurityContext
+     */
+    @Override
+    public void logout(VerifiedToken token) {
+        revocations.revoke(token);
+    }
+
+    /**
+     * Revoke all access tokens issued to this user so far, on every instance.
+     *
+     * @param email authenticated user's email
+     */
+    @Override
+    public void logoutEverywhere(String email) {
+        revocations.revokeAll(email);
+        refreshTokens.revokeAll(email);
     }
 
 
@@ -161,32 +241,47 @@ public class AuthServiceImpl implements AuthService {
     /**
      * Generate JWT tokens for a user.
      *
-     * @param user the authenticated user
-     * @return TokenBundle containing access token (no refresh in this impl)
+     * @param flow     flow the tokens are issued for (metrics tag)
+     * @param id       user id
+     * @param email    normalised email (token subject)
+     * @param provider sign-in provider
+     * @return TokenBundle containing access token and, if enabled, a new refresh token
      */
-    private TokenBundle issueTokens(User user) {
+    private TokenBundle issueTokens(String flow, Long id, String email, Provider provider) {
         Map<String, Object> claims = Map.of(
-                "provider", user.getProvider().name(),
-                "uid", user.getId()
+                "provider", provider.name(),
+                "uid", id
         );
-        String accessToken = jwtToken.generateToken(user.getEmail(), claims);
-        return new TokenBundle(accessToken, null);
+        String accessToken = metrics.stage(flow, "sign_token", () -> jwtToken.generateToken(email, claims));
+        String refreshToken = metrics.stage(flow, "issue_refresh_token", () -> refreshTokens.issue(id, email, provider));
+        return new TokenBundle(accessToken, refreshToken);
+    }
+
+    /**
+     * Convert user fields + issued tokens into AuthResponse.
+     */
+    private AuthResponse toResponse(Long id, String email, String name, TokenBundle tokens) {
+        AuthResponse res = toResponse(id, email, name, tokens.getAccessToken());
+        res.setRefreshToken(tokens.getRefreshToken());
+        return res;
     }
 
     /**
-     * Convert a User + token into AuthResponse.
+     * Convert user fields + token into AuthResponse.
      *
-     * @param user        the user
+     * @param id          user id
+     * @param email       user email
+     * @param name        display name
      * @param accessToken issued JWT token
      * @return AuthResponse containing token and user info
      */
-    private AuthResponse toResponse(User user, String accessToken) {
+    private AuthResponse toResponse(Long id, String email, String name, String accessToken) {
         AuthResponse res = new AuthResponse();
         res.setAccessToken(accessToken);
         res.setTokenType("Bearer");
-        res.setId(user.getId());
-        res.setEmail(user.getEmail());
-        res.setName(user.getName());
+        res.setId(id);
+        res.setEmail(email);
+        res.setName(name);
         return res;
     }
 }
@@ -0,0 +1,130 @@
+package com.example.logintestbackend.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, lock-free Bloom filter for strings.
+ *
+ * Bits live in an {@link AtomicLongArray}; inserts use CAS per word, lookups are plain reads.
+ * Elements cannot be removed, so callers that need deletions rebuild a fresh filter
+ * and swap it in.
+ *
+ * Sizing follows the usual formulas: {@code m = -n ln p / (ln 2)^2} bits and
+ * {@code k = m/n ln 2} hash functions, with double hashing to derive the k probes.
+ * For example 50M elements at p = 1% need ~479M bits (~57 MiB) and 7 probes.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder insertions = new LongAdder();
+
+    private BloomFilter(long bitCount, int hashCount) {
+        long wordCount = (bitCount + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bitCount + " bits");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitCount = wordCount << 6;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * @param expectedInsertions number of elements the filter is sized for
+     * @param falsePositiveRate  target false-positive probability at that size (0 &lt; p &lt; 1)
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) expectedInsertions = 1;
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+        long bits = optimalBits(expectedInsertions, falsePositiveRate);
+        int k = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bits, k);
+    }
+
+    /**
+     * @return bits needed for {@code n} elements at false-positive rate {@code p}
+     */
+    public static long optimalBits(long n, double p) {
+        return (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    public void put(String value) {
+        long raw = hash(value);
+        long h1 = mix(raw ^ 0x9E3779B97F4A7C15L);
+        long h2 = mix(raw ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int idx = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long old;
+            while (((old = words.get(idx)) & mask) == 0) {
+                if (words.compareAndSet(idx, old, old | mask)) break;
+            }
+        }
+        insertions.increment();
+    }
+
+    /**
+     * @return false if the value was definitely never added; true if it might have been
+     */
+    public boolean mightContain(String value) {
+        long raw = hash(value);
+        long h1 = mix(raw ^ 0x9E3779B97F4A7C15L);
+        long h2 = mix(raw ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return number of {@link #put} calls so far (duplicates included)
+     */
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * @return false-positive probability expected at the current insertion count
+     */
+    public double expectedFalsePositiveRate() {
+        double n = insertions.sum();
+        return Math.pow(1 - Math.exp(-hashCount * n / bitCount), hashCount);
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's chars (no byte[] allocation).
+     */
+    private static long hash(String value) {
+        long h = 0xCBF29CE484222325L ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * murmur3 fmix64 finaliser.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
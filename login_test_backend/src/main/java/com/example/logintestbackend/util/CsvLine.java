@@ -0,0 +1,73 @@
+package com.example.logintestbackend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 handling for one-record-per-line CSV (no embedded line breaks).
+ */
+public final class CsvLine {
+
+    private CsvLine() {}
+
+    /**
+     * Split a line into fields. Quoted fields may contain commas and doubled quotes.
+     *
+     * @throws IllegalArgumentException on an unterminated or misplaced quote
+     */
+    public static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int n = line.length();
+        while (true) {
+            if (i < n && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= n) throw new IllegalArgumentException("unterminated quote");
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < n && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < n && line.charAt(i) != ',') throw new IllegalArgumentException("text after closing quote");
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? n : comma;
+                field.append(line, i, end);
+                if (field.indexOf("\"") >= 0) throw new IllegalArgumentException("quote inside unquoted field");
+                i = end;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= n) return fields;
+            i++; // skip the comma
+        }
+    }
+
+    /**
+     * Append a field, quoting only when needed. A null field is written as nothing,
+     * which Postgres {@code COPY ... (FORMAT csv)} reads as NULL.
+     */
+    public static StringBuilder append(StringBuilder out, String field) {
+        if (field == null) return out;
+        boolean quote = field.isEmpty();
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return out.append(field);
+        out.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        return out.append('"');
+    }
+}
@@ -0,0 +1,30 @@
+-- Baseline: the schema previously recreated by schema.sql on every boot.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS users (
+    id              BIGSERIAL PRIMARY KEY,
+    email           TEXT UNIQUE NOT NULL,
+    password_hash   TEXT,
+    name            TEXT,
+    provider        TEXT NOT NULL CHECK (provider IN ('LOCAL','GOOGLE')),
+    oauth_id        TEXT UNIQUE,
+    enabled         BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id              BIGSERIAL PRIMARY KEY,
+    token_hash      TEXT UNIQUE NOT NULL,
+    family_id       TEXT NOT NULL,
+    user_id         BIGINT NOT NULL,
+    email           TEXT NOT NULL,
+    provider        TEXT NOT NULL CHECK (provider IN ('LOCAL','GOOGLE')),
+    expires_at      TIMESTAMPTZ NOT NULL,
+    used_at         TIMESTAMPTZ,
+    revoked         BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS ix_refresh_tokens_email ON refresh_tokens (email);
@@ -0,0 +1,4 @@
+-- Let Hibernate reserve user ids in blocks of 50 (pooled optimizer) so inserts can be
+-- JDBC-batched. Column defaults (native inserts) still draw single values; each
+-- nextval is handed to exactly one consumer, so the ranges never overlap.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
@@ -0,0 +1,44 @@
+-- Auth-path indexes. CONCURRENTLY avoids blocking writes on large tables;
+-- Flyway runs this script outside a transaction because of it (spring.flyway.mixed lets
+-- the DO blocks run alongside), so every step is safe to rerun after a failed attempt.
+
+-- The app stores and looks up emails lower-cased, but rows written outside the app may
+-- not be. Accounts that differ only by case cannot be merged automatically: stop with
+-- the addresses to resolve by hand rather than fail the unique index build below.
+DO $$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(email, ', ') INTO duplicates
+      FROM (SELECT lower(email) AS email FROM users
+             GROUP BY lower(email) HAVING count(*) > 1
+             ORDER BY 1 LIMIT 20) d;
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'users has emails that differ only by case: %', duplicates
+            USING HINT = 'Merge or rename these accounts, then run flyway repair and migrate again.';
+    END IF;
+END $$;
+
+-- Lower-case the rest, so the app's exact lookups find them
+UPDATE users SET email = lower(email) WHERE email <> lower(email);
+UPDATE refresh_tokens SET email = lower(email) WHERE email <> lower(email);
+
+-- A failed concurrent build leaves an INVALID index, which IF NOT EXISTS would then
+-- skip: drop it so the rerun builds it again
+DO $$
+DECLARE
+    name TEXT;
+BEGIN
+    FOREACH name IN ARRAY ARRAY['ux_users_email_lower', 'ix_users_provider_oauth_id'] LOOP
+        IF EXISTS (SELECT 1 FROM pg_index WHERE indexrelid = to_regclass(name) AND NOT indisvalid) THEN
+            EXECUTE format('DROP INDEX %I', name);
+        END IF;
+    END LOOP;
+END $$;
+
+-- Case-insensitive uniqueness, also for rows written outside the app.
+-- The plain unique index on email stays: it serves exact lookups and ON CONFLICT (email).
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ux_users_email_lower ON users (lower(email));
+
+-- Matches findByOauthIdAndProvider / the Google upsert lookup (provider, oauth_id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_users_provider_oauth_id ON users (provider, oauth_id);
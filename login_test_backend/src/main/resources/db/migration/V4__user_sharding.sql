@@ -0,0 +1,16 @@
+-- Sharded user store (app.sharding). Used on the main database only; shards run the same
+-- migrations, so the tables also exist (empty) there.
+
+-- Hash bucket of the normalised email -> shard index
+CREATE TABLE IF NOT EXISTS user_shard_buckets (
+    bucket  INTEGER PRIMARY KEY,
+    shard   INTEGER NOT NULL
+);
+
+-- OAuth identity -> account email, so lookups by oauth_id reach a single shard
+CREATE TABLE IF NOT EXISTS user_oauth_directory (
+    provider  TEXT NOT NULL CHECK (provider IN ('LOCAL','GOOGLE')),
+    oauth_id  TEXT NOT NULL,
+    email     TEXT NOT NULL,
+    PRIMARY KEY (provider, oauth_id)
+);
@@ -0,0 +1,31 @@
+-- Login audit log (app.auth.audit-log): one row per login, registration and Google sign-in.
+-- Partitioned by month; LoginAuditLog creates upcoming partitions and drops expired ones.
+-- The default partition only catches rows written before their month's partition exists.
+
+CREATE TABLE IF NOT EXISTS login_events (
+    occurred_at  TIMESTAMPTZ NOT NULL,
+    flow         TEXT NOT NULL CHECK (flow IN ('login','register','google')),
+    outcome      TEXT NOT NULL,
+    email        TEXT,
+    ip           INET,
+    user_agent   TEXT,
+    latency_us   BIGINT NOT NULL
+) PARTITION BY RANGE (occurred_at);
+
+CREATE TABLE IF NOT EXISTS login_events_default PARTITION OF login_events DEFAULT;
+
+-- Security review looks up one account's history; BRIN keeps time-range scans cheap
+CREATE INDEX IF NOT EXISTS ix_login_events_email ON login_events (email, occurred_at);
+CREATE INDEX IF NOT EXISTS ix_login_events_occurred_at ON login_events USING brin (occurred_at);
+
+-- Append-only: rows are never updated or deleted (retention drops whole partitions)
+CREATE OR REPLACE FUNCTION login_events_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'login_events is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS tr_login_events_append_only ON login_events;
+CREATE TRIGGER tr_login_events_append_only
+    BEFORE UPDATE OR DELETE ON login_events
+    FOR EACH ROW EXECUTE FUNCTION login_events_append_only();
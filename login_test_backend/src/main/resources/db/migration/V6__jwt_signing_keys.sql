@@ -0,0 +1,11 @@
+-- ES256 signing keys shared by every instance (app.jwt.algorithm=ES256, see JwtKeyRing).
+-- A key signs from activates_at until the next key activates, then stays published for
+-- verification until the tokens it signed have expired.
+
+CREATE TABLE IF NOT EXISTS jwt_signing_keys (
+    kid           TEXT PRIMARY KEY,
+    private_key   BYTEA NOT NULL,   -- PKCS#8 DER
+    public_key    BYTEA NOT NULL,   -- X.509 SubjectPublicKeyInfo DER
+    activates_at  TIMESTAMPTZ NOT NULL UNIQUE,
+    created_at    TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
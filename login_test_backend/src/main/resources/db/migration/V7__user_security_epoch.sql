@@ -0,0 +1,5 @@
+-- Per-user security epoch (epoch seconds): tokens issued before it are rejected.
+-- Kept on the user row so it survives restarts and reaches every instance; instances
+-- cache recent epochs in memory and hear about bumps over LISTEN/NOTIFY (user_changes).
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS security_epoch BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- Instances load the epochs bumped within the last token lifetime at startup and after
+-- missed change events. Almost every row stays at 0, so the partial index is tiny.
+-- CONCURRENTLY avoids blocking writes; Flyway runs this script outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_users_security_epoch ON users (security_epoch) WHERE security_epoch > 0;
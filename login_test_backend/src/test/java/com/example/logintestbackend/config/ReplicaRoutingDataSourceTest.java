@@ -0,0 +1,214 @@
+package com.example.logintestbackend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Routing decisions of {@link ReplicaRoutingDataSource#getConnection()} with mocked pools;
+ * replica health is driven through {@link ReplicaRoutingDataSource#checkHealth()} by the
+ * value the lag query returns.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofMillis(200);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DataSource primary = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final FakeReplica replica1 = new FakeReplica("replica-1");
+    private final FakeReplica replica2 = new FakeReplica("replica-2");
+    private ReplicaRoutingDataSource router;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        ReadReplicaPropertiesConfig cfg = new ReadReplicaPropertiesConfig();
+        cfg.setMaxLag(MAX_LAG);
+        router = new ReplicaRoutingDataSource(primary, List.of(replica1.pool, replica2.pool), cfg, registry);
+    }
+
+    @Test
+    void spreadsReadsOverHealthyReplicas() throws SQLException {
+        replica1.lag(0);
+        replica2.lag(0.05);
+        router.checkHealth();
+
+        List<Connection> connections = List.of(router.getConnection(), router.getConnection(),
+                router.getConnection(), router.getConnection());
+
+        assertThat(connections).containsOnly(replica1.connection, replica2.connection);
+        assertThat(connections.get(0)).isNotSameAs(connections.get(1));
+        assertThat(routed("replica-1", "replica") + routed("replica-2", "replica")).isEqualTo(4);
+        assertThat(registry.get("db.replica.healthy").tag("pool", "replica-1").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void replicasStartOutOfRotationUntilChecked() throws SQLException {
+        assertThat(router.getConnection()).isSameAs(primaryConnection);
+        assertThat(routed("primary", "no_healthy_replica")).isEqualTo(1);
+    }
+
+    @Test
+    void pinnedReadsUseThePrimary() throws SQLException {
+        replica1.lag(0);
+        replica2.lag(0);
+        router.checkHealth();
+
+        Connection pinned = router.onPrimary(() -> {
+            try {
+                return router.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(pinned).isSameAs(primaryConnection);
+        assertThat(routed("primary", "pinned")).isEqualTo(1);
+        assertThat(router.getConnection()).isNotSameAs(primaryConnection);
+    }
+
+    @Test
+    void readsRightAfterAWriteUseThePrimary() throws Exception {
+        replica1.lag(0);
+        replica2.lag(0);
+        router.checkHealth();
+
+        ReplicaRoutingDataSource.markWrite();
+        assertThat(router.getConnection()).isSameAs(primaryConnection);
+        assertThat(routed("primary", "after_write")).isEqualTo(1);
+
+        // Once max-lag has passed every replica has caught up with the write
+        Thread.sleep(MAX_LAG.toMillis() + 50);
+        assertThat(router.getConnection()).isNotSameAs(primaryConnection);
+    }
+
+    @Test
+    void skipsLaggingAndDisconnectedReplicas() throws SQLException {
+        replica1.lag(-1);   // WAL receiver not streaming
+        replica2.lag(0);
+        router.checkHealth();
+
+        assertThat(router.getConnection()).isSameAs(replica2.connection);
+        assertThat(router.getConnection()).isSameAs(replica2.connection);
+
+        replica1.lag(0);
+        replica2.lag(MAX_LAG.toMillis() / 1000.0 + 1);
+        router.checkHealth();
+
+        assertThat(router.getConnection()).isSameAs(replica1.connection);
+        assertThat(router.getConnection()).isSameAs(replica1.connection);
+        assertThat(registry.get("db.replica.healthy").tag("pool", "replica-2").gauge().value()).isZero();
+    }
+
+    @Test
+    void replicaThatFailsToConnectLeavesRotation() throws SQLException {
+        replica1.lag(0);
+        replica2.lag(0);
+        router.checkHealth();
+        replica1.unreachable();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(router.getConnection()).isSameAs(replica2.connection);
+        }
+        // One health check, then one routing attempt; skipped until a health check brings it back
+        verify(replica1.pool, times(2)).getConnection();
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhenEveryReplicaIsDown() throws SQLException {
+        replica1.unreachable();
+        replica2.lag(-1);
+        router.checkHealth();
+
+        assertThat(router.getConnection()).isSameAs(primaryConnection);
+        assertThat(router.getConnection()).isSameAs(primaryConnection);
+        assertThat(routed("primary", "no_healthy_replica")).isEqualTo(2);
+    }
+
+    @Test
+    void recoveredReplicaReturnsToRotation() throws SQLException {
+        replica1.unreachable();
+        replica2.unreachable();
+        router.checkHealth();
+        assertThat(router.getConnection()).isSameAs(primaryConnection);
+
+        replica1.lag(0);
+        router.checkHealth();
+
+        assertThat(router.getConnection()).isSameAs(replica1.connection);
+    }
+
+    @Test
+    void autoCommitReplicaPoolsPassTheHealthCheck() throws SQLException {
+        replica1.lag(0);
+        replica1.autoCommit();
+        replica2.unreachable();
+        router.checkHealth();
+
+        assertThat(router.getConnection()).isSameAs(replica1.connection);
+        verify(replica1.connection, never()).rollback();
+    }
+
+    // ---- Internal Methods ----
+
+    private double routed(String target, String reason) {
+        var counter = registry.find("db.read_routing.connections").tag("target", target).tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    /**
+     * A mocked replica pool whose lag query answers {@link #lag(double)}.
+     */
+    private static final class FakeReplica {
+        final HikariDataSource pool = mock(HikariDataSource.class);
+        final Connection connection = mock(Connection.class);
+        final Statement statement = mock(Statement.class);
+        final ResultSet lagResult = mock(ResultSet.class);
+
+        FakeReplica(String name) {
+            when(pool.getPoolName()).thenReturn(name);
+        }
+
+        void lag(double seconds) throws SQLException {
+            doReturn(connection).when(pool).getConnection();
+            when(connection.createStatement()).thenReturn(statement);
+            when(statement.executeQuery(anyString())).thenReturn(lagResult);
+            when(lagResult.next()).thenReturn(true);
+            when(lagResult.getDouble(1)).thenReturn(seconds);
+        }
+
+        /** Like pgjdbc: rollback is an error with auto-commit on */
+        void autoCommit() throws SQLException {
+            when(connection.getAutoCommit()).thenReturn(true);
+            doThrow(new SQLException("Cannot rollback when autoCommit is enabled.")).when(connection).rollback();
+        }
+
+        void unreachable() throws SQLException {
+            doThrow(new SQLTransientConnectionException("connection refused")).when(pool).getConnection();
+        }
+    }
+}
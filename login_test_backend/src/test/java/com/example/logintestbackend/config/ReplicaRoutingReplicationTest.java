@@ -0,0 +1,202 @@
+package com.example.logintestbackend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link ReplicaRoutingDataSource} against a real streaming replica, set up like the
+ * {@code replica} profile in docker-compose.yaml (same replication script and base backup).
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingReplicationTest {
+
+    private static final Network NETWORK = Network.newNetwork();
+
+    @Container
+    private static final PostgreSQLContainer<?> PRIMARY = new PostgreSQLContainer<>("postgres:16")
+            .withNetwork(NETWORK)
+            .withNetworkAliases("db")
+            .withDatabaseName("loginTest")
+            .withUsername("postgres")
+            .withPassword("example")
+            .withCopyFileToContainer(MountableFile.forHostPath("docker/postgres/primary-replication.sh", 0755),
+                    "/docker-entrypoint-initdb.d/primary-replication.sh");
+
+    @Container
+    private static final GenericContainer<?> REPLICA = new GenericContainer<>("postgres:16")
+            .withNetwork(NETWORK)
+            .dependsOn(PRIMARY)
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres"))
+            .withEnv("PGPASSWORD", "example")
+            .withCommand("bash", "-c", """
+                    if [ ! -s "$PGDATA/PG_VERSION" ]; then
+                      pg_basebackup -h db -U postgres -D "$PGDATA" -R -X stream
+                      chmod 700 "$PGDATA"
+                    fi
+                    exec postgres
+                    """)
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*started streaming WAL.*", 1));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HikariDataSource primaryPool;
+    private HikariDataSource replicaPool;
+    private ReplicaRoutingDataSource router;
+
+    @BeforeEach
+    void setUp() {
+        primaryPool = pool("primary", PRIMARY.getJdbcUrl());
+        replicaPool = pool("replica-1", "jdbc:postgresql://" + REPLICA.getHost() + ":" + REPLICA.getMappedPort(5432) + "/loginTest");
+        replicaPool.setReadOnly(true);
+        ReadReplicaPropertiesConfig cfg = new ReadReplicaPropertiesConfig();
+        cfg.setMaxLag(Duration.ofMillis(500));
+        router = new ReplicaRoutingDataSource(primaryPool, List.of(replicaPool), cfg, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.destroy();
+        primaryPool.close();
+    }
+
+    @Test
+    void streamingReplicaServesReads() throws SQLException {
+        router.checkHealth();
+
+        assertThat(healthy()).isEqualTo(1);
+        assertThat(inRecovery(router)).isTrue();
+    }
+
+    @Test
+    void primaryWritesBecomeVisibleThroughTheRouter() throws SQLException {
+        router.checkHealth();
+        execute(primaryPool, "create table if not exists replication_probe (id int primary key)");
+        execute(primaryPool, "insert into replication_probe values (1) on conflict do nothing");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> query(router, "select count(*) from replication_probe") == 1);
+    }
+
+    @Test
+    void pinnedAndPostWriteReadsUseThePrimary() throws Exception {
+        router.checkHealth();
+
+        assertThat(router.onPrimary(() -> {
+            try {
+                return inRecovery(router);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        })).isFalse();
+
+        ReplicaRoutingDataSource.markWrite();
+        assertThat(inRecovery(router)).isFalse();
+
+        Thread.sleep(600);
+        assertThat(inRecovery(router)).isTrue();
+    }
+
+    @Test
+    void replicaWithoutWalReceiverLeavesRotationUntilItStreamsAgain() throws SQLException {
+        router.checkHealth();
+        String conninfo = show(replicaPool, "primary_conninfo");
+
+        // Stop the WAL receiver: the replica still answers, but no longer follows the primary
+        reconfigure("alter system set primary_conninfo = ''");
+        try {
+            await().atMost(Duration.ofSeconds(10)).until(() -> {
+                router.checkHealth();
+                return healthy() == 0;
+            });
+            assertThat(inRecovery(router)).isFalse();
+            assertThat(registry.get("db.read_routing.connections")
+                    .tag("target", "primary").tag("reason", "no_healthy_replica").counter().count()).isEqualTo(1);
+        } finally {
+            reconfigure("alter system set primary_conninfo = '" + conninfo.replace("'", "''") + "'");
+        }
+
+        await().atMost(Duration.ofSeconds(15)).until(() -> {
+            router.checkHealth();
+            return healthy() == 1;
+        });
+        assertThat(inRecovery(router)).isTrue();
+    }
+
+    // ---- Internal Methods ----
+
+    private double healthy() {
+        return registry.get("db.replica.healthy").gauge().value();
+    }
+
+    private void reconfigure(String alterSystem) throws SQLException {
+        try (HikariDataSource admin = pool("replica-admin", replicaPool.getJdbcUrl())) {
+            admin.setAutoCommit(true);
+            execute(admin, alterSystem);
+            execute(admin, "select pg_reload_conf()");
+        }
+    }
+
+    private static boolean inRecovery(DataSource source) throws SQLException {
+        return query(source, "select case when pg_is_in_recovery() then 1 else 0 end") == 1;
+    }
+
+    private static long query(DataSource source, String sql) throws SQLException {
+        try (Connection con = source.getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String show(DataSource source, String setting) throws SQLException {
+        try (Connection con = source.getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("show " + setting)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static void execute(DataSource source, String sql) throws SQLException {
+        try (Connection con = source.getConnection();
+             Statement st = con.createStatement()) {
+            st.execute(sql);
+            if (!con.getAutoCommit()) con.commit();
+        }
+    }
+
+    private static HikariDataSource pool(String name, String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername("postgres");
+        pool.setPassword("example");
+        pool.setAutoCommit(false);
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+}
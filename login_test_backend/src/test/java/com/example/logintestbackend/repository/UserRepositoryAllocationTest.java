@@ -0,0 +1,62 @@
+package com.example.logintestbackend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.example.logintestbackend.support.Allocations;
+
+/**
+ * Bytes allocated (and time taken) per login lookup: the {@link com.example.logintestbackend.DTO.projection.AuthUserView}
+ * projection ({@link UserRepository#findAuthViewByEmail}) against hydrating the
+ * {@link com.example.logintestbackend.entity.User} entity ({@link UserRepository#findByEmail}).
+ *
+ * Each lookup runs in its own read-only transaction, as on the request path, so the entity
+ * path pays for a fresh persistence context every time instead of hitting the first-level cache.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryAllocationTest {
+
+    private static final int WARMUP = 3_000;
+    private static final int ITERATIONS = 2_000;
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private UserRepository users;
+
+    private long sink;
+
+    @Test
+    void authViewAllocatesLessThanEntityHydration() {
+        String email = "alloc-" + UUID.randomUUID() + "@example.com";
+        long id = users.insertLocalIfAbsent(email,
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z8B4Ad8sX9ZcJl2dWj0ho7gS", "Allocation Test").orElseThrow();
+
+        Allocations.Sample entity = Allocations.measure(WARMUP, ITERATIONS,
+                () -> sink += users.findByEmail(email).orElseThrow().getId());
+        Allocations.Sample view = Allocations.measure(WARMUP, ITERATIONS,
+                () -> sink += users.findAuthViewByEmail(email).orElseThrow().id());
+
+        assertThat(sink).isEqualTo(id * 2 * (WARMUP + ITERATIONS));
+        assertThat(view.bytesPerOp())
+                .as("Login lookup: entity %s, AuthUserView %s", entity, view)
+                .isLessThan(entity.bytesPerOp());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.logintestbackend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+
+class ClientIpResolverTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "203.0.113.7, 203.0.113.7",
+            "0.0.0.0, 0.0.0.0",
+            "255.255.255.255, 255.255.255.255",
+            "2001:DB8::1, 2001:db8:0:0:0:0:0:1",
+            "::1, 0:0:0:0:0:0:0:1",
+            "fe80::1%eth0, fe80:0:0:0:0:0:0:1",
+            "::ffff:198.51.100.4, 198.51.100.4",
+    })
+    void canonicalisesLiterals(String literal, String canonical) {
+        assertThat(ClientIpResolver.canonical(literal)).isEqualTo(canonical);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // Host names made only of hex digits would otherwise be looked up in DNS
+            "cafe", "beef", "dead.beef", "localhost",
+            // Legacy IPv4 shorthands
+            "1", "1.2", "1.2.3", "0x7f.0.0.1", "017700000001",
+            // Malformed
+            "1.2.3.4.5", "256.1.1.1", "1.2.3.", ".1.2.3", "1..2.3", "1.2.3.4 ", "", "::g", "[::1]",
+    })
+    void rejectsAnythingButStrictLiterals(String value) {
+        assertThat(ClientIpResolver.canonical(value)).isNull();
+    }
+
+    @Test
+    void usesThePeerAddressWithoutTrustedProxies() {
+        MockHttpServletRequest request = request("::1", "198.51.100.4");
+
+        assertThat(resolver().resolve(request)).isEqualTo("0:0:0:0:0:0:0:1");
+    }
+
+    @Test
+    void walksForwardedForPastTrustedProxies() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        assertThat(resolver.resolve(request("10.0.0.5", "198.51.100.4, 10.0.0.9"))).isEqualTo("198.51.100.4");
+        assertThat(resolver.resolve(request("10.0.0.5", "forged, 198.51.100.4"))).isEqualTo("198.51.100.4");
+        assertThat(resolver.resolve(request("203.0.113.7", "198.51.100.4"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void stopsAtTheLastGenuineHopWhenAHopIsNotALiteral() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        assertThat(resolver.resolve(request("10.0.0.5", "198.51.100.4, cafe"))).isEqualTo("10.0.0.5");
+        assertThat(resolver.resolve(request("10.0.0.5", "198.51.100.4, 10.1"))).isEqualTo("10.0.0.5");
+    }
+
+    @Test
+    void returnsForwardedAddressesInCanonicalForm() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        assertThat(resolver.resolve(request("10.0.0.5", "2001:DB8:0::1"))).isEqualTo("2001:db8:0:0:0:0:0:1");
+    }
+
+    // ---- Internal Methods ----
+
+    private static ClientIpResolver resolver(String... trustedProxies) {
+        AuthPropertiesConfig cfg = new AuthPropertiesConfig();
+        cfg.setTrustedProxies(List.of(trustedProxies));
+        return new ClientIpResolver(cfg);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader(ClientIpResolver.FORWARDED_FOR, forwardedFor);
+        return request;
+    }
+}
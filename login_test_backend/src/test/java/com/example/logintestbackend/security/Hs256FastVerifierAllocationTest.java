@@ -0,0 +1,48 @@
+package com.example.logintestbackend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.support.Allocations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Bytes allocated (and time taken) per verification of a Bearer header: the HS256 fast path
+ * ({@link JwtTokenUtil#verifyBearer}) against the jjwt path it replaces
+ * (substring + {@link JwtTokenUtil#verifyWithParser}).
+ */
+class Hs256FastVerifierAllocationTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 20_000;
+
+    private long sink;
+
+    @Test
+    void fastPathAllocatesAFractionOfTheParserPath() {
+        JwtPropertiesConfig cfg = new JwtPropertiesConfig();
+        cfg.setSecret("allocation-test-secret-0123456789-abcdefgh!");
+        cfg.setFastPath(true);
+        JwtKeyRing keyRing = new JwtKeyRing(cfg, mock(JdbcTemplate.class), mock(PlatformTransactionManager.class));
+        JwtTokenUtil jwt = new JwtTokenUtil(cfg, new VerifiedTokenCache(cfg, new SimpleMeterRegistry()), keyRing);
+        String header = "Bearer " + jwt.generateToken("user@example.com", Map.of("uid", 42L, "provider", "LOCAL"));
+
+        Allocations.Sample parser = Allocations.measure(WARMUP, ITERATIONS,
+                () -> sink += jwt.verifyWithParser(header.substring(7)).uid());
+        Allocations.Sample fast = Allocations.measure(WARMUP, ITERATIONS,
+                () -> sink += jwt.verifyBearer(header).orElseThrow().uid());
+
+        assertThat(sink).isEqualTo(42L * 2 * (WARMUP + ITERATIONS));
+        assertThat(fast.bytesPerOp())
+                .as("HS256 verification: jjwt %s, fast path %s", parser, fast)
+                .isLessThan(1024).isLessThan(parser.bytesPerOp() / 4);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.logintestbackend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.enums.Provider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Differential test: whenever {@link Hs256FastVerifier} decides a token (anything but
+ * {@link Hs256FastVerifier#FALLBACK}), the decision must equal
+ * {@link JwtTokenUtil#verifyWithParser(String)} on the same token.
+ */
+class Hs256FastVerifierTest {
+
+    /** Not valid Base64, so JwtTokenUtil uses its UTF-8 bytes as the key */
+    private static final String SECRET = "differential-test-secret-0123456789-abcdef!";
+    private static final String ISSUER = "logintestbackend";
+    private static final String HS256_HEADER = "{\"alg\":\"HS256\"}";
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    private JwtTokenUtil jwt;
+    private Hs256FastVerifier fast;
+
+    @BeforeEach
+    void setUp() {
+        JwtPropertiesConfig cfg = new JwtPropertiesConfig();
+        cfg.setSecret(SECRET);
+        cfg.setIssuer(ISSUER);
+        cfg.setFastPath(true);
+        JwtKeyRing keyRing = new JwtKeyRing(cfg, mock(JdbcTemplate.class), mock(PlatformTransactionManager.class));
+        jwt = new JwtTokenUtil(cfg, new VerifiedTokenCache(cfg, new SimpleMeterRegistry()), keyRing);
+        fast = new Hs256FastVerifier(
+                new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"), ISSUER);
+    }
+
+    @Test
+    void decidesTokensIssuedByJwtTokenUtil() {
+        String token = jwt.generateToken("user@example.com", Map.of("uid", 42L, "provider", "LOCAL"));
+
+        VerifiedToken decided = fast.verify(token, 0, token.length());
+
+        assertThat(decided).isNotSameAs(Hs256FastVerifier.FALLBACK).isNotNull();
+        assertThat(decided).isEqualTo(jwt.verifyWithParser(token));
+        assertThat(decided.uid()).isEqualTo(42L);
+        assertThat(decided.provider()).isEqualTo(Provider.LOCAL);
+    }
+
+    @Test
+    void decidesBearerHeaderInPlace() {
+        String token = jwt.generateToken("user@example.com", Map.of("uid", 7L, "provider", "GOOGLE"));
+        String header = "Bearer " + token;
+
+        VerifiedToken decided = fast.verify(header, 7, header.length());
+
+        assertThat(decided).isNotSameAs(Hs256FastVerifier.FALLBACK).isEqualTo(jwt.verifyWithParser(token));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("cases")
+    void agreesWithParser(String name, String token) {
+        assertAgrees(token);
+    }
+
+    @Test
+    void agreesWithParserOnGeneratedPayloads() {
+        Random random = new Random(20240501);
+        long now = Instant.now().getEpochSecond();
+        for (int i = 0; i < 2_000; i++) {
+            String payload = randomPayload(random, now);
+            assertAgrees(sign(HS256_HEADER, payload));
+            assertAgrees(mutate(random, sign(HS256_HEADER, payload)));
+        }
+    }
+
+    static Stream<Arguments> cases() {
+        long now = Instant.now().getEpochSecond();
+        String claims = claims(now + 600);
+        List<Arguments> cases = new ArrayList<>();
+
+        // Baseline
+        cases.add(Arguments.of("issued layout", sign(HS256_HEADER, claims)));
+        cases.add(Arguments.of("wrong issuer", sign(HS256_HEADER, claims.replace(ISSUER, "someone-else"))));
+        cases.add(Arguments.of("wrong key", signWith("another-secret-that-is-long-enough-0123456789", HS256_HEADER, claims)));
+        cases.add(Arguments.of("tampered payload", tamperPayload(sign(HS256_HEADER, claims))));
+
+        // alg / typ variations
+        cases.add(Arguments.of("typ JWT after alg", sign("{\"alg\":\"HS256\",\"typ\":\"JWT\"}", claims)));
+        cases.add(Arguments.of("typ JWT before alg", sign("{\"typ\":\"JWT\",\"alg\":\"HS256\"}", claims)));
+        cases.add(Arguments.of("header whitespace", sign("{ \"alg\" : \"HS256\" }", claims)));
+        cases.add(Arguments.of("alg lower case", sign("{\"alg\":\"hs256\"}", claims)));
+        cases.add(Arguments.of("alg HS384 signed HS256", sign("{\"alg\":\"HS384\"}", claims)));
+        cases.add(Arguments.of("alg none", b64(HS256_HEADER.replace("HS256", "none")) + "." + b64(claims) + "."));
+        cases.add(Arguments.of("alg none with HS256 signature", swapHeader(sign(HS256_HEADER, claims), "{\"alg\":\"none\"}")));
+        cases.add(Arguments.of("unsigned issued header", b64(HS256_HEADER) + "." + b64(claims) + "."));
+
+        // Padding and whitespace
+        String valid = sign(HS256_HEADER, claims);
+        cases.add(Arguments.of("leading space", " " + valid));
+        cases.add(Arguments.of("trailing newline", valid + "\n"));
+        cases.add(Arguments.of("padded payload", padded(valid, 1)));
+        cases.add(Arguments.of("padded signature", valid + "="));
+        cases.add(Arguments.of("payload whitespace", sign(HS256_HEADER, claims.replace(",", " ,\n\t").replace(":", " : "))));
+        cases.add(Arguments.of("payload outer whitespace", sign(HS256_HEADER, " \r\n" + claims + " \n")));
+
+        // exp / nbf / iat boundaries
+        cases.add(Arguments.of("exp now", sign(HS256_HEADER, claims(now))));
+        cases.add(Arguments.of("exp 1s ago", sign(HS256_HEADER, claims(now - 1))));
+        cases.add(Arguments.of("exp within clock skew", sign(HS256_HEADER, claims(now - 30))));
+        cases.add(Arguments.of("exp in 5s", sign(HS256_HEADER, claims(now + 5))));
+        cases.add(Arguments.of("exp 0", sign(HS256_HEADER, claims(0))));
+        cases.add(Arguments.of("exp missing", sign(HS256_HEADER, claims.replaceAll(",\"exp\":\\d+", ""))));
+        cases.add(Arguments.of("exp as string", sign(HS256_HEADER, claims.replace("\"exp\":" + (now + 600), "\"exp\":\"" + (now + 600) + "\""))));
+        cases.add(Arguments.of("exp as decimal", sign(HS256_HEADER, claims.replace("\"exp\":" + (now + 600), "\"exp\":" + (now + 600) + ".5"))));
+        cases.add(Arguments.of("exp as exponent", sign(HS256_HEADER, claims.replace("\"exp\":" + (now + 600), "\"exp\":1e10"))));
+        cases.add(Arguments.of("exp negative", sign(HS256_HEADER, claims.replace("\"exp\":" + (now + 600), "\"exp\":-1"))));
+        cases.add(Arguments.of("exp leading zero", sign(HS256_HEADER, claims.replace("\"exp\":" + (now + 600), "\"exp\":0" + (now + 600)))));
+        cases.add(Arguments.of("nbf past", sign(HS256_HEADER, claims.replace("{", "{\"nbf\":" + (now - 10) + ","))));
+        cases.add(Arguments.of("nbf within clock skew", sign(HS256_HEADER, claims.replace("{", "{\"nbf\":" + (now + 30) + ","))));
+        cases.add(Arguments.of("nbf future", sign(HS256_HEADER, claims.replace("{", "{\"nbf\":" + (now + 300) + ","))));
+        cases.add(Arguments.of("iat missing", sign(HS256_HEADER, claims.replaceAll("\"iat\":\\d+,", ""))));
+        cases.add(Arguments.of("iat 0", sign(HS256_HEADER, claims.replaceAll("\"iat\":\\d+", "\"iat\":0"))));
+
+        // Signature length
+        cases.add(Arguments.of("signature one char short", valid.substring(0, valid.length() - 1)));
+        cases.add(Arguments.of("signature one char long", valid + "A"));
+        cases.add(Arguments.of("signature empty", valid.substring(0, valid.lastIndexOf('.') + 1)));
+        cases.add(Arguments.of("signature truncated to 31 bytes", withSignature(valid, 31)));
+        cases.add(Arguments.of("signature extended to 33 bytes", withSignature(valid, 33)));
+
+        // Non-canonical base64url
+        cases.add(Arguments.of("signature non-zero trailing bits", nonCanonicalSignature(valid)));
+        cases.add(Arguments.of("signature standard alphabet", valid.substring(0, valid.lastIndexOf('.') + 1)
+                + valid.substring(valid.lastIndexOf('.') + 1).replace('-', '+').replace('_', '/')));
+        cases.add(Arguments.of("payload non-zero trailing bits", nonCanonicalPayload(now)));
+        cases.add(Arguments.of("payload invalid character", valid.replaceFirst("\\.(.)", ".*")));
+
+        // Claim shapes
+        cases.add(Arguments.of("duplicate sub", sign(HS256_HEADER, claims.replace("{", "{\"sub\":\"other@example.com\","))));
+        cases.add(Arguments.of("escaped sub", sign(HS256_HEADER, claims.replace("user@example.com", "us\\u0065r@example.com"))));
+        cases.add(Arguments.of("non-ASCII sub", sign(HS256_HEADER, claims.replace("user@example.com", "usér@example.com"))));
+        cases.add(Arguments.of("uid as string", sign(HS256_HEADER, claims.replace("\"uid\":42", "\"uid\":\"42\""))));
+        cases.add(Arguments.of("uid 16 digits", sign(HS256_HEADER, claims.replace("\"uid\":42", "\"uid\":1234567890123456"))));
+        cases.add(Arguments.of("provider unknown", sign(HS256_HEADER, claims.replace("LOCAL", "local"))));
+        cases.add(Arguments.of("provider as number", sign(HS256_HEADER, claims.replace("\"LOCAL\"", "1"))));
+        cases.add(Arguments.of("unknown claims", sign(HS256_HEADER, claims.replace("{", "{\"x\":\"y\",\"n\":5,"))));
+        cases.add(Arguments.of("unknown boolean claim", sign(HS256_HEADER, claims.replace("{", "{\"admin\":true,"))));
+        cases.add(Arguments.of("nested claim", sign(HS256_HEADER, claims.replace("{", "{\"o\":{\"a\":1},"))));
+        cases.add(Arguments.of("trailing comma", sign(HS256_HEADER, claims.replace("}", ",}"))));
+        cases.add(Arguments.of("trailing garbage", sign(HS256_HEADER, claims + "x")));
+        cases.add(Arguments.of("empty claims", sign(HS256_HEADER, "{}")));
+        cases.add(Arguments.of("not an object", sign(HS256_HEADER, "[1,2]")));
+        return cases.stream();
+    }
+
+    // ---- Internal Methods ----
+
+    private void assertAgrees(String token) {
+        VerifiedToken decided = fast.verify(token, 0, token.length());
+        if (decided == Hs256FastVerifier.FALLBACK) return;
+        assertThat(decided).as("fast path vs jjwt for %s", token).isEqualTo(jwt.verifyWithParser(token));
+    }
+
+    private static String claims(long exp) {
+        return "{\"iss\":\"" + ISSUER + "\",\"sub\":\"user@example.com\",\"jti\":\"3f1c9a7e-2b4d-4e8f-9a01-5c6d7e8f9a0b\","
+                + "\"uid\":42,\"provider\":\"LOCAL\",\"iat\":" + (exp - 3600) + ",\"exp\":" + exp + "}";
+    }
+
+    private static String randomPayload(Random random, long now) {
+        List<String> parts = new ArrayList<>();
+        if (random.nextInt(10) > 0) parts.add("\"iss\":\"" + (random.nextInt(8) > 0 ? ISSUER : "other") + "\"");
+        if (random.nextInt(10) > 0) parts.add("\"sub\":\"u" + random.nextInt(1000) + "@example.com\"");
+        if (random.nextBoolean()) parts.add("\"jti\":\"" + Long.toHexString(random.nextLong()) + "\"");
+        if (random.nextBoolean()) parts.add("\"uid\":" + random.nextInt(1_000_000));
+        if (random.nextBoolean()) parts.add("\"provider\":\"" + (random.nextBoolean() ? "LOCAL" : "GOOGLE") + "\"");
+        if (random.nextBoolean()) parts.add("\"iat\":" + (now - random.nextInt(3600)));
+        if (random.nextInt(10) > 0) parts.add("\"exp\":" + (now + random.nextInt(1200) - 600));
+        if (random.nextInt(10) == 0) parts.add("\"nbf\":" + (now + random.nextInt(600) - 300));
+        if (random.nextInt(5) == 0) parts.add("\"extra\":" + (random.nextBoolean() ? "\"v\"" : "7"));
+        Collections.shuffle(parts, random);
+        String sep = random.nextInt(4) == 0 ? " , " : ",";
+        return "{" + String.join(sep, parts) + "}";
+    }
+
+    /** Replace one character with another base64url character (or a separator) */
+    private static String mutate(Random random, String token) {
+        String replacements = ALPHABET + ".=";
+        char[] chars = token.toCharArray();
+        chars[random.nextInt(chars.length)] = replacements.charAt(random.nextInt(replacements.length()));
+        return new String(chars);
+    }
+
+    private static String sign(String header, String payload) {
+        return signWith(SECRET, header, payload);
+    }
+
+    private static String signWith(String secret, String header, String payload) {
+        String input = b64(header) + "." + b64(payload);
+        return input + "." + B64.encodeToString(hmac(secret, input));
+    }
+
+    private static byte[] hmac(String secret, String input) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(input.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String b64(String json) {
+        return B64.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String tamperPayload(String token) {
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        return parts[0] + "." + b64(payload.replace("\"uid\":42", "\"uid\":43")) + "." + parts[2];
+    }
+
+    private static String swapHeader(String token, String header) {
+        return b64(header) + token.substring(token.indexOf('.'));
+    }
+
+    /** Re-sign with the padded payload, so only the padding differs */
+    private static String padded(String token, int extra) {
+        String[] parts = token.split("\\.");
+        String input = parts[0] + "." + parts[1] + "=".repeat(extra);
+        return input + "." + B64.encodeToString(hmac(SECRET, input));
+    }
+
+    private static String withSignature(String token, int bytes) {
+        String input = token.substring(0, token.lastIndexOf('.'));
+        byte[] sig = Arrays.copyOf(hmac(SECRET, input), bytes);
+        return input + "." + B64.encodeToString(sig);
+    }
+
+    /** Same 32 signature bytes, but the unused low bits of the last character set */
+    private static String nonCanonicalSignature(String token) {
+        char last = token.charAt(token.length() - 1);
+        char flipped = ALPHABET.charAt(ALPHABET.indexOf(last) | 0x3);
+        return token.substring(0, token.length() - 1) + flipped;
+    }
+
+    /** Payload whose last base64url character carries non-zero unused bits, correctly signed */
+    private static String nonCanonicalPayload(long now) {
+        String payload = claims(now + 600);
+        String encoded = b64(payload);
+        while (encoded.length() % 4 == 0) {
+            payload = payload.replace("}", " }");
+            encoded = b64(payload);
+        }
+        int unusedBits = encoded.length() % 4 == 2 ? 0xF : 0x3;
+        char last = encoded.charAt(encoded.length() - 1);
+        String tweaked = encoded.substring(0, encoded.length() - 1) + ALPHABET.charAt(ALPHABET.indexOf(last) | unusedBits);
+        String input = b64(HS256_HEADER) + "." + tweaked;
+        return input + "." + B64.encodeToString(hmac(SECRET, input));
+    }
+}
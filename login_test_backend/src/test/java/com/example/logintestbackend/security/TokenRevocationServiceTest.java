@@ -0,0 +1,278 @@
+package com.example.logintestbackend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.logintestbackend.config.JwtPropertiesConfig;
+import com.example.logintestbackend.config.RedisConfig;
+import com.example.logintestbackend.enums.Provider;
+
+/**
+ * {@link TokenRevocationService} against a real Redis: storage with TTLs, Bloom-filter
+ * lookups, the startup build, pub/sub between instances and the SCAN rebuild.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TokenRevocationServiceTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private RedisMessageListenerContainer listenerContainer;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = connect(REDIS.getHost(), REDIS.getMappedPort(6379));
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (listenerContainer != null) listenerContainer.destroy();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void revokeStoresTheJtiUntilTheTokenExpires() {
+        TokenRevocationService revocations = service(redis, mock(UserSecurityEpochs.class));
+        VerifiedToken token = token(Duration.ofMinutes(10));
+
+        revocations.revoke(token);
+
+        assertThat(revocations.isRevoked(token)).isTrue();
+        assertThat(revocations.isRevoked(token(Duration.ofMinutes(10)))).isFalse();
+        Long ttl = redis.getExpire("revoked:jti:" + token.id(), TimeUnit.SECONDS);
+        assertThat(ttl).isBetween(590L, 600L);
+    }
+
+    @Test
+    void revokeIgnoresExpiredTokens() {
+        TokenRevocationService revocations = service(redis, mock(UserSecurityEpochs.class));
+        VerifiedToken token = token(Duration.ofSeconds(-1));
+
+        revocations.revoke(token);
+
+        assertThat(redis.hasKey("revoked:jti:" + token.id())).isFalse();
+        assertThat(revocations.isRevoked(token)).isFalse();
+    }
+
+    @Test
+    void bloomHitIsConfirmedWithRedis() {
+        TokenRevocationService revocations = service(redis, mock(UserSecurityEpochs.class));
+        VerifiedToken token = token(Duration.ofMinutes(10));
+        revocations.revoke(token);
+
+        // The key expired (or was removed) before the next rebuild: the filter still says maybe
+        redis.delete("revoked:jti:" + token.id());
+
+        assertThat(revocations.isRevoked(token)).isFalse();
+    }
+
+    @Test
+    void bloomHitFailsClosedWhenRedisIsUnreachable() {
+        TokenRevocationService revocations = service(redis, mock(UserSecurityEpochs.class));
+        VerifiedToken token = token(Duration.ofMinutes(10));
+        revocations.onMessage(message("jti:" + token.id()), null);
+        connectionFactory.stop();
+
+        assertThat(revocations.isRevoked(token)).isTrue();
+        assertThat(revocations.isRevoked(token(Duration.ofMinutes(10)))).isFalse();
+    }
+
+    @Test
+    void revocationsFromBeforeStartupAreLoadedBeforeTraffic() {
+        VerifiedToken token = token(Duration.ofMinutes(10));
+        redis.opsForValue().set("revoked:jti:" + token.id(), "1", Duration.ofMinutes(10));
+
+        TokenRevocationService revocations = service(redis, mock(UserSecurityEpochs.class));
+        connectionFactory.stop();
+
+        // Answered from the filter built at startup (a Bloom hit Redis cannot confirm fails closed)
+        assertThat(revocations.isRevoked(token)).isTrue();
+        assertThat(revocations.isRevoked(token(Duration.ofMinutes(10)))).isFalse();
+    }
+
+    @Test
+    void everyLookupGoesToRedisUntilTheFilterIsBuilt() throws Exception {
+        VerifiedToken revoked = token(Duration.ofMinutes(10));
+        redis.opsForValue().set("revoked:jti:" + revoked.id(), "1", Duration.ofMinutes(10));
+
+        // Redis down at startup: the initial build fails and nothing can be confirmed
+        LettuceConnectionFactory unreachable = connect(REDIS.getHost(), 1);
+        try {
+            TokenRevocationService down = service(new StringRedisTemplate(unreachable),
+                    mock(UserSecurityEpochs.class));
+
+            assertThat(down.isRevoked(revoked)).isTrue();
+            assertThat(down.isRevoked(token(Duration.ofMinutes(10)))).isTrue();
+        } finally {
+            unreachable.destroy();
+        }
+
+        // Not built yet, Redis reachable: Redis decides
+        TokenRevocationService unbuilt = create(redis, mock(UserSecurityEpochs.class));
+        assertThat(unbuilt.isRevoked(revoked)).isTrue();
+        assertThat(unbuilt.isRevoked(token(Duration.ofMinutes(10)))).isFalse();
+
+        unbuilt.buildIfNotReady();
+        connectionFactory.stop();
+        assertThat(unbuilt.isRevoked(revoked)).isTrue();
+        assertThat(unbuilt.isRevoked(token(Duration.ofMinutes(10)))).isFalse();
+    }
+
+    @Test
+    void revocationsReachOtherInstancesOverPubSub() {
+        UserSecurityEpochs localEpochs = mock(UserSecurityEpochs.class);
+        UserSecurityEpochs remoteEpochs = mock(UserSecurityEpochs.class);
+        when(localEpochs.bump("User@Example.com")).thenReturn(1_700_000_000L);
+        TokenRevocationService local = service(redis, localEpochs);
+        TokenRevocationService remote = service(redis, remoteEpochs);
+        subscribe(remote);
+
+        VerifiedToken token = token(Duration.ofMinutes(10));
+        local.revoke(token);
+        local.revokeAll("User@Example.com");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> remote.isRevoked(token));
+        verify(remoteEpochs, timeout(5_000)).apply("user@example.com", 1_700_000_000L);
+        assertThat(redis.opsForValue().get("revoked:user:user@example.com")).isEqualTo("1700000000");
+    }
+
+    @Test
+    void malformedMessagesAreIgnored() {
+        UserSecurityEpochs epochs = mock(UserSecurityEpochs.class);
+        TokenRevocationService revocations = service(redis, epochs);
+
+        revocations.onMessage(message("user:not-a-number:someone@example.com"), null);
+        revocations.onMessage(message("user:"), null);
+
+        verify(epochs, never()).apply(anyString(), anyLong());
+    }
+
+    @Test
+    void rebuildLoadsEveryRevocationFromAScan() {
+        // More keys than one SCAN page (count 1000), so the cursor has to be followed
+        Map<String, String> keys = new HashMap<>();
+        for (int i = 0; i < 2_500; i++) {
+            keys.put("revoked:jti:scan-" + i, "1");
+        }
+        UserSecurityEpochs epochs = mock(UserSecurityEpochs.class);
+        TokenRevocationService revocations = service(redis, epochs);
+        redis.opsForValue().multiSet(keys);
+        redis.opsForValue().set("revoked:user:someone@example.com", "1700000123", Duration.ofMinutes(5));
+        VerifiedToken first = token("scan-0", Duration.ofMinutes(10));
+        VerifiedToken last = token("scan-2499", Duration.ofMinutes(10));
+        assertThat(revocations.isRevoked(first)).isFalse();
+
+        revocations.rebuild();
+
+        assertThat(revocations.isRevoked(first)).isTrue();
+        assertThat(revocations.isRevoked(last)).isTrue();
+        assertThat(revocations.isRevoked(token(Duration.ofMinutes(10)))).isFalse();
+        verify(epochs).apply("someone@example.com", 1_700_000_123L);
+    }
+
+    @Test
+    void rebuildDropsRevocationsThatExpiredInRedis() {
+        TokenRevocationService revocations = service(redis, mock(UserSecurityEpochs.class));
+        VerifiedToken token = token(Duration.ofMinutes(10));
+        revocations.revoke(token);
+        redis.delete("revoked:jti:" + token.id());
+
+        revocations.rebuild();
+        // Stop Redis answering: only a Bloom hit would reach it (and fail closed)
+        connectionFactory.stop();
+
+        assertThat(revocations.isRevoked(token)).isFalse();
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * A started service, as the container creates it (filter built at startup).
+     */
+    private static TokenRevocationService service(StringRedisTemplate redis, UserSecurityEpochs epochs) {
+        TokenRevocationService revocations = create(redis, epochs);
+        revocations.init();
+        return revocations;
+    }
+
+    private static TokenRevocationService create(StringRedisTemplate redis, UserSecurityEpochs epochs) {
+        JwtPropertiesConfig cfg = new JwtPropertiesConfig();
+        cfg.getRevocation().setEnabled(true);
+        cfg.getRevocation().setExpectedRevocations(10_000);
+        ObjectProvider<StringRedisTemplate> provider =
+                new StaticListableBeanFactory(Map.of("redis", redis)).getBeanProvider(StringRedisTemplate.class);
+        return new TokenRevocationService(cfg, provider, epochs);
+    }
+
+    private void subscribe(TokenRevocationService revocations) {
+        listenerContainer = new RedisConfig().revocationListenerContainer(connectionFactory, revocations);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        await().atMost(Duration.ofSeconds(5)).until(listenerContainer::isListening);
+    }
+
+    private static LettuceConnectionFactory connect(String host, int port) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(host, port),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(2)).build());
+        factory.afterPropertiesSet();
+        factory.start();
+        return factory;
+    }
+
+    private static VerifiedToken token(Duration remaining) {
+        return token(UUID.randomUUID().toString(), remaining);
+    }
+
+    private static VerifiedToken token(String jti, Duration remaining) {
+        Instant now = Instant.now();
+        return new VerifiedToken(jti, "user@example.com", 42L, Provider.LOCAL,
+                now.minusSeconds(60), now.plus(remaining), "logintestbackend");
+    }
+
+    private static Message message(String body) {
+        return new DefaultMessage(TokenRevocationService.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
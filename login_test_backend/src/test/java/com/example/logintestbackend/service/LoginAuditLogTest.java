@@ -0,0 +1,171 @@
+package com.example.logintestbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.example.logintestbackend.config.AuthPropertiesConfig;
+import com.example.logintestbackend.security.ClientIpResolver;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The audit writer against a mocked database: batch retries, the row-by-row fallback and
+ * the client IP written to the {@code inet} column.
+ */
+class LoginAuditLogTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final AuthPropertiesConfig cfg = new AuthPropertiesConfig();
+    private final List<String[]> rows = new CopyOnWriteArrayList<>();
+    private LoginAuditLog auditLog;
+
+    @BeforeEach
+    void setUp() {
+        cfg.getAuditLog().setFlushInterval(Duration.ofMillis(20));
+        cfg.getAuditLog().setBatchRetries(1);
+        auditLog = new LoginAuditLog(jdbc, mock(PlatformTransactionManager.class), cfg,
+                new ClientIpResolver(cfg), registry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        auditLog.stop();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void writesBatches() {
+        batchesFail(0, null);
+        auditLog.start();
+
+        record("a@example.com", "203.0.113.7");
+        record("b@example.com", "203.0.113.8");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> events("written") == 2);
+        assertThat(rows).extracting(row -> row[0]).containsExactly("a@example.com", "b@example.com");
+    }
+
+    @Test
+    void rejectedRowsAreDroppedAfterTheRetries() {
+        batchesFail(Integer.MAX_VALUE, new DataIntegrityViolationException("invalid input syntax for type inet"));
+        when(jdbc.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(inv -> {
+            String[] row = bound(inv.getArgument(1));
+            if (row[0].startsWith("bad")) throw new DataIntegrityViolationException("rejected");
+            rows.add(row);
+            return 1;
+        });
+        auditLog.start();
+
+        record("a@example.com", null);
+        record("bad@example.com", null);
+        record("c@example.com", null);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> events("written") + events("failed") == 3);
+        assertThat(events("written")).isEqualTo(2);
+        assertThat(events("failed")).isEqualTo(1);
+        assertThat(rows).extracting(row -> row[0]).containsExactly("a@example.com", "c@example.com");
+    }
+
+    @Test
+    void keepsEventsWhileTheDatabaseIsUnavailable() {
+        batchesFail(2, new CannotGetJdbcConnectionException("connection refused"));
+        when(jdbc.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("connection refused"));
+        auditLog.start();
+
+        record("a@example.com", null);
+        record("b@example.com", null);
+
+        await().atMost(Duration.ofSeconds(15)).until(() -> events("written") == 2);
+        assertThat(events("failed")).isZero();
+    }
+
+    @Test
+    void storesClientIpsAsCanonicalLiterals() {
+        batchesFail(0, null);
+        auditLog.start();
+
+        record("a@example.com", "fe80::1%eth0");
+        record("b@example.com", "unix:/var/run/app.sock");
+        record("c@example.com", "2001:DB8::1");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> events("written") == 3);
+        assertThat(rows).extracting(row -> row[1]).containsExactly("fe80:0:0:0:0:0:0:1", null, "2001:db8:0:0:0:0:0:1");
+    }
+
+    // ---- Internal Methods ----
+
+    /**
+     * Fail the first {@code failures} batch inserts with {@code failure}, then record the rows.
+     */
+    @SuppressWarnings("unchecked")
+    private void batchesFail(int failures, RuntimeException failure) {
+        AtomicInteger attempts = new AtomicInteger();
+        when(jdbc.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(inv -> {
+                    if (attempts.getAndIncrement() < failures) throw failure;
+                    ParameterizedPreparedStatementSetter<Object> setter = inv.getArgument(3);
+                    for (Object event : inv.<List<Object>>getArgument(1)) {
+                        rows.add(bound(ps -> setter.setValues(ps, event)));
+                    }
+                    return new int[0][];
+                });
+    }
+
+    /**
+     * @return {email, ip} as bound by {@code setter}
+     */
+    private static String[] bound(PreparedStatementSetter setter) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.setValues(ps);
+        ArgumentCaptor<String> email = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> ip = ArgumentCaptor.forClass(String.class);
+        verify(ps).setString(eq(4), email.capture());
+        verify(ps).setString(eq(5), ip.capture());
+        return new String[]{email.getValue(), ip.getValue()};
+    }
+
+    private void record(String email, String remoteAddr) {
+        if (remoteAddr == null) {
+            RequestContextHolder.resetRequestAttributes();
+        } else {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setRemoteAddr(remoteAddr);
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        }
+        auditLog.track(AuthMetrics.LOGIN, email, () -> null);
+    }
+
+    private double events(String result) {
+        return registry.get("auth.audit.events").tag("result", result).counter().count();
+    }
+}
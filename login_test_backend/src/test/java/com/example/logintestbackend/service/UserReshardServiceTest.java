@@ -0,0 +1,58 @@
+package com.example.logintestbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class UserReshardServiceTest {
+
+    @Test
+    void spreadsBucketsEvenly() {
+        int[] next = UserReshardService.rebalance(new int[UserShards.BUCKETS], 3);
+
+        assertThat(bucketsOn(next, 0)).isEqualTo(342);
+        assertThat(bucketsOn(next, 1)).isEqualTo(341);
+        assertThat(bucketsOn(next, 2)).isEqualTo(341);
+    }
+
+    @Test
+    void growingMovesOnlyTheNewShardsShare() {
+        int[] two = UserReshardService.rebalance(new int[UserShards.BUCKETS], 2);
+        int[] three = UserReshardService.rebalance(two, 3);
+
+        assertThat(moved(two, three)).isEqualTo(bucketsOn(three, 2));
+        for (int b = 0; b < UserShards.BUCKETS; b++) {
+            if (three[b] != two[b]) assertThat(three[b]).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void drainingEmptiesTheTrailingShards() {
+        int[] three = UserReshardService.rebalance(new int[UserShards.BUCKETS], 3);
+        int[] two = UserReshardService.rebalance(three, 2);
+
+        assertThat(bucketsOn(two, 2)).isZero();
+        assertThat(moved(three, two)).isEqualTo(bucketsOn(three, 2));
+    }
+
+    @Test
+    void rebalancingABalancedMapMovesNothing() {
+        int[] once = UserReshardService.rebalance(new int[UserShards.BUCKETS], 4);
+
+        assertThat(UserReshardService.rebalance(once, 4)).isEqualTo(once);
+    }
+
+    // ---- Internal Methods ----
+
+    private static long bucketsOn(int[] map, int shard) {
+        return Arrays.stream(map).filter(s -> s == shard).count();
+    }
+
+    private static long moved(int[] from, int[] to) {
+        long moved = 0;
+        for (int b = 0; b < from.length; b++) if (from[b] != to[b]) moved++;
+        return moved;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.logintestbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.example.logintestbackend.config.ConnectionBulkhead;
+import com.example.logintestbackend.config.ConnectionBulkheadPropertiesConfig;
+import com.example.logintestbackend.config.DataSourceRoutingConfig;
+import com.example.logintestbackend.config.ShardRoutingDataSource;
+import com.example.logintestbackend.config.ShardingConfig;
+import com.example.logintestbackend.config.ShardingPropertiesConfig;
+import com.example.logintestbackend.entity.User;
+import com.example.logintestbackend.enums.Provider;
+import com.example.logintestbackend.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * User sharding over two databases, wired as in production ({@link DataSourceRoutingConfig},
+ * {@link ShardingConfig}) with connection bulkheads on: shard 0 is the main database, as in the
+ * {@code shards} profile of docker-compose.yaml.
+ */
+@DataJpaTest(properties = {
+        "app.sharding.enabled=true",
+        "app.datasource.bulkheads.enabled=true",
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DataSourceRoutingConfig.class, ShardingConfig.class, ShardingPropertiesConfig.class,
+        ConnectionBulkheadPropertiesConfig.class, UserShards.class, UserReshardService.class,
+        UserShardingTest.Metrics.class})
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserShardingTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> MAIN = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("loginTest");
+
+    @Container
+    private static final PostgreSQLContainer<?> SHARD_1 = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("loginTestShard1");
+
+    @DynamicPropertySource
+    static void databases(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MAIN::getJdbcUrl);
+        registry.add("spring.datasource.username", MAIN::getUsername);
+        registry.add("spring.datasource.password", MAIN::getPassword);
+        registry.add("app.sharding.shards[0].url", MAIN::getJdbcUrl);
+        registry.add("app.sharding.shards[1].url", SHARD_1::getJdbcUrl);
+        registry.add("app.sharding.shards[1].username", SHARD_1::getUsername);
+        registry.add("app.sharding.shards[1].password", SHARD_1::getPassword);
+    }
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private static final String HASH = "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z8B4Ad8sX9ZcJl2dWj0ho7gS";
+
+    @Autowired
+    private UserRepository users;
+
+    @Autowired
+    private UserShards shards;
+
+    @Autowired
+    private UserReshardService reshard;
+
+    @Autowired
+    private ShardRoutingDataSource routing;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void reset() {
+        tx = new TransactionTemplate(txManager);
+        shards.forEachShard(shard -> update("delete from users"));
+        update("delete from user_oauth_directory");
+        shards.saveBucketMap(new int[UserShards.BUCKETS]);
+    }
+
+    @Test
+    void eachUserLivesOnAndIsReadFromOneShard() {
+        shards.saveBucketMap(UserReshardService.rebalance(new int[UserShards.BUCKETS], 2));
+        String first = emailOn(0, "first");
+        String second = emailOn(1, "second");
+
+        long firstId = users.insertLocalIfAbsent(first, HASH, "First").orElseThrow();
+        long secondId = users.insertLocalIfAbsent(second, HASH, "Second").orElseThrow();
+
+        assertThat(emailsOn(0)).containsExactly(first);
+        assertThat(emailsOn(1)).containsExactly(second);
+        assertThat(secondId >>> 48).as("shard 1 id range").isEqualTo(1);
+        assertThat(users.findByEmail(first).orElseThrow().getId()).isEqualTo(firstId);
+        assertThat(users.findAuthViewByEmail(second).orElseThrow().id()).isEqualTo(secondId);
+        assertThat(users.existsByEmail(second)).isTrue();
+        assertThat(users.insertLocalIfAbsent(second, HASH, "Again")).isEmpty();
+    }
+
+    @Test
+    void everyShardHasItsOwnBulkheadPools() {
+        for (int shard = 0; shard < routing.shardCount(); shard++) {
+            String database = shard == 0 ? "loginTest" : "loginTestShard1";
+            assertThat(onShard(shard, ConnectionBulkhead.DEFAULT, "current_database()")).isEqualTo(database);
+            assertThat(onShard(shard, ConnectionBulkhead.AUTH_READ, "current_database()")).isEqualTo(database);
+
+            // Bulkhead pools are the only ones with a statement_timeout
+            assertThat(onShard(shard, ConnectionBulkhead.DEFAULT, "current_setting('statement_timeout')")).isEqualTo("0");
+            assertThat(onShard(shard, ConnectionBulkhead.AUTH_READ, "current_setting('statement_timeout')")).isEqualTo("2s");
+            assertThat(onShard(shard, ConnectionBulkhead.ACCOUNT_WRITE, "current_setting('statement_timeout')")).isEqualTo("10s");
+        }
+    }
+
+    @Test
+    void findsOauthUsersThroughTheDirectory() {
+        shards.saveBucketMap(UserReshardService.rebalance(new int[UserShards.BUCKETS], 2));
+        String email = emailOn(1, "google");
+
+        assertThat(users.upsertGoogleUser("sub-1", email, "Google User")).isPresent();
+
+        assertThat(shards.emailForOauth(Provider.GOOGLE, "sub-1")).contains(email);
+        assertThat(emailsOn(1)).containsExactly(email);
+        assertThat(users.findByOauthIdAndProvider("sub-1", Provider.GOOGLE).map(User::getEmail)).contains(email);
+        assertThat(users.findByOauthIdAndProvider("sub-unknown", Provider.GOOGLE)).isEmpty();
+        assertThat(users.findByOauthIdAndProvider("sub-1", Provider.LOCAL)).isEmpty();
+    }
+
+    @Test
+    void reshardingMovesUsersAndIsSafeToRerun() throws Exception {
+        List<String> emails = insertUsers(200);
+        String google = emailOn(UserReshardService.rebalance(shards.bucketMap(), 2), 1, "google");
+        users.upsertGoogleUser("sub-1", google, "Google User");
+        update("delete from user_oauth_directory");
+
+        UserReshardService.Report first = reshard.run();
+
+        // Shard 1 is scanned after shard 0, so moved rows are seen twice
+        assertThat(first.moved()).isEqualTo(emailsOn(1).size()).isPositive();
+        assertThat(first.scanned()).isEqualTo(201 + first.moved());
+        assertPlacedByBucketMap(emails);
+        assertThat(users.findByOauthIdAndProvider("sub-1", Provider.GOOGLE).map(User::getEmail)).contains(google);
+
+        UserReshardService.Report second = reshard.run();
+
+        assertThat(second.scanned()).isEqualTo(201);
+        assertThat(second.moved()).isZero();
+        assertPlacedByBucketMap(emails);
+    }
+
+    @Test
+    void rerunFinishesAnInterruptedMove() throws Exception {
+        List<String> emails = insertUsers(100);
+        int[] next = UserReshardService.rebalance(shards.bucketMap(), 2);
+
+        // Interrupted after copying the moving rows, before deleting them from shard 0
+        List<Map<String, Object>> moving = shardJdbc(0).queryForList("select * from users").stream()
+                .filter(row -> next[UserShards.bucketOf((String) row.get("email"))] == 1)
+                .toList();
+        for (Map<String, Object> row : moving) {
+            shards.onShard(1, () -> update("""
+                    insert into users (id, email, password_hash, name, provider, oauth_id, enabled, created_at, updated_at)
+                    values (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """, row.get("id"), row.get("email"), row.get("password_hash"), row.get("name"),
+                    row.get("provider"), row.get("oauth_id"), row.get("enabled"), row.get("created_at"),
+                    row.get("updated_at")));
+        }
+
+        UserReshardService.Report report = reshard.run();
+
+        assertThat(report.scanned()).isEqualTo(100 + moving.size());
+        assertPlacedByBucketMap(emails);
+    }
+
+    // ---- Internal Methods ----
+
+    private List<String> insertUsers(int count) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String email = "user-" + i + "@example.com";
+            users.insertLocalIfAbsent(email, HASH, "User " + i).orElseThrow();
+            emails.add(email);
+        }
+        assertThat(emailsOn(0)).hasSize(count);
+        return emails;
+    }
+
+    private void assertPlacedByBucketMap(List<String> emails) {
+        for (String email : emails) {
+            int shard = shards.shardOf(email);
+            assertThat(emailsOn(shard)).as(email).contains(email);
+            assertThat(emailsOn(1 - shard)).as(email).doesNotContain(email);
+            assertThat(users.findAuthViewByEmail(email)).as(email).isPresent();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < routing.shardCount(); i++) ids.addAll(shardJdbc(i).queryForList("select id from users", Long.class));
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+
+    /**
+     * @return an email that the current bucket map places on {@code shard}
+     */
+    private String emailOn(int shard, String prefix) {
+        return emailOn(shards.bucketMap(), shard, prefix);
+    }
+
+    private static String emailOn(int[] bucketMap, int shard, String prefix) {
+        for (int i = 0; ; i++) {
+            String email = prefix + "-" + i + "@example.com";
+            if (bucketMap[UserShards.bucketOf(email)] == shard) return email;
+        }
+    }
+
+    private List<String> emailsOn(int shard) {
+        return shardJdbc(shard).queryForList("select email from users order by email", String.class);
+    }
+
+    /**
+     * Run a committed update on the main database, or on the shard selected by the caller.
+     */
+    private Integer update(String sql, Object... args) {
+        return tx.execute(status -> jdbc.update(sql, args));
+    }
+
+    private JdbcTemplate shardJdbc(int shard) {
+        return new JdbcTemplate(routing.shard(shard));
+    }
+
+    private String onShard(int shard, ConnectionBulkhead bulkhead, String expression) {
+        return ShardRoutingDataSource.call(shard, () -> bulkhead.call(
+                () -> jdbc.queryForObject("select " + expression, String.class)));
+    }
+}